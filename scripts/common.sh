@@ -98,6 +98,14 @@ readonly -a JAVA_CMD=(
 readonly -a MVN_CMD=(
     ./mvnw -V
 )
+# set variable MVN_TEST_PROFILE before source this script to activate the maven profile
+# for the test classes and dependencies, e.g. jmh; not for building the TTL jar.
+readonly -a MVN_TEST_CMD=(
+    "${MVN_CMD[@]}"
+    ${MVN_TEST_PROFILE+
+        -P "$MVN_TEST_PROFILE"
+    }
+)
 
 #################################################################################
 # maven operation functions
@@ -126,7 +134,7 @@ mvnBuildJar() {
 
 mvnCompileTest() {
     if [ ! -e "target/test-classes/"  -o  "target/test-classes/" -ot src/  ]; then
-        runCmd "${MVN_CMD[@]}" test-compile || die "fail to mvn test-compile!" || die "fail to compile test!"
+        runCmd "${MVN_TEST_CMD[@]}" test-compile || die "fail to mvn test-compile!" || die "fail to compile test!"
     fi
 }
 
@@ -136,7 +144,7 @@ mvnCopyDependencies() {
     if [ ! -e "$dependencies_dir" ]; then
         # https://maven.apache.org/plugins/maven-dependency-plugin/copy-dependencies-mojo.html
         # exclude repackaged and shaded javassist libs
-        runCmd "${MVN_CMD[@]}" dependency:copy-dependencies -DincludeScope=test -DexcludeArtifactIds=javassist,jsr305 || die "fail to mvn copy-dependencies!"
+        runCmd "${MVN_TEST_CMD[@]}" dependency:copy-dependencies -DincludeScope=test -DexcludeArtifactIds=javassist,jsr305 || die "fail to mvn copy-dependencies!"
     fi
 }
 
@@ -0,0 +1,26 @@
+#!/bin/bash
+# Run JMH benchmarks under src/test/java/com/alibaba/perf/jmh, report throughput and gc allocation rates.
+#
+# Usage:
+#   jmh.sh [jmh options/benchmark regexps]
+#
+# The benchmarks are run twice, without and with the TTL agent,
+# the agent enhanced ThreadPoolExecutor is measured by the ExecutorBenchmark.execute of the second run.
+
+cd "$(dirname "$(readlink -f "$0")")"
+# the JMH benchmarks and dependencies are compiled and copied only by the jmh profile
+readonly MVN_TEST_PROFILE=jmh
+source ../common.sh
+
+[ "$1" = skipClean ] && shift
+(( $# == 0 )) && set -- com.alibaba.perf.jmh
+
+headInfo "Run JMH benchmarks"
+runCmd "$JAVA_HOME/bin/java" -cp "$(getClasspath)" \
+    org.openjdk.jmh.Main -prof gc "$@"
+
+headInfo "Run JMH benchmarks under TTL agent"
+# the forked benchmark JVM inherits the JVM options, include the javaagent option
+runCmd "$JAVA_HOME/bin/java" -cp "$(getClasspathWithoutTtlJar)" \
+    "-javaagent:$(getTtlJarPath)=ttl.agent.logger:STDOUT" \
+    org.openjdk.jmh.Main -prof gc "$@"
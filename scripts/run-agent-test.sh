@@ -25,3 +25,8 @@ blueEcho "Run agent check for Timer/TimerTask"
 runCmd "${JAVA_CMD[@]}" -cp "$(getClasspathWithoutTtlJar)" \
     "-javaagent:$(getTtlJarPath)=ttl.agent.logger:STDOUT,ttl.agent.enable.timer.task:true" \
     com.alibaba.ttl.threadpool.agent.check.timer.TimerAgentCheck
+
+blueEcho "Run agent check for the user-defined Executor"
+runCmd "${JAVA_CMD[@]}" -cp "$(getClasspathWithoutTtlJar)" \
+    "-javaagent:$(getTtlJarPath)=ttl.agent.logger:STDOUT,ttl.agent.executor.class.names:com.alibaba.ttl.threadpool.agent.check.executor.*" \
+    com.alibaba.ttl.threadpool.agent.check.executor.UserExecutorAgentCheck
@@ -0,0 +1,48 @@
+package com.alibaba.ttl;
+
+/**
+ * The {@code long} variant of {@link TransmittableThreadLocal}, transmitted by {@link TransmittableThreadLocal.Transmitter}
+ * with the {@link TransmittableThreadLocal} values, but without boxing.
+ * <p>
+ * Set/get, capture and replay/restore of the value allocate nothing, except the first set in a thread;
+ * useful for the ids propagation, e.g. trace id, tenant id.
+ * <p>
+ * The value is inheritable by the child thread like {@link TransmittableThreadLocal}.
+ *
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ * @see TransmittableIntLocal
+ * @see TransmittableThreadLocal
+ * @since 2.11.0
+ */
+public final class TransmittableLongLocal {
+    private final TtlLongLocal local = new TtlLongLocal();
+
+    /**
+     * Returns the value in the current thread, or {@code 0} if not set.
+     */
+    public long get() {
+        return local.getLong(0);
+    }
+
+    /**
+     * Returns the value in the current thread, or {@code defaultValue} if not set.
+     */
+    public long get(long defaultValue) {
+        return local.getLong(defaultValue);
+    }
+
+    /**
+     * Whether the value is set in the current thread.
+     */
+    public boolean isSet() {
+        return local.isPresent();
+    }
+
+    public void set(long value) {
+        local.setLong(value);
+    }
+
+    public void remove() {
+        local.removeLong();
+    }
+}
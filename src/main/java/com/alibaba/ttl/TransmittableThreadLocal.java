@@ -2,7 +2,6 @@ package com.alibaba.ttl;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.function.Supplier;
 import java.util.logging.Level;
@@ -54,6 +53,133 @@ import java.util.logging.Logger;
 public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
     private static final Logger logger = Logger.getLogger(TransmittableThreadLocal.class.getName());
 
+    /**
+     * the stable slot of this {@link TransmittableThreadLocal} in the {@link TtlRegistry} of threads.
+     */
+    final int slot;
+    final TtlRegistry.SlotRef slotRef;
+    @Nonnull
+    final TransmissionPolicy policy;
+    /**
+     * Whether {@link #get()} need register this {@link TransmittableThreadLocal} to the current thread.
+     * <p>
+     * The value of {@link TransmittableThreadLocal} is set by {@link #set(Object)} or inherited from parent thread,
+     * both are registered already; Only the value from the overridden {@link #initialValue()} is not.
+     * So when {@link #initialValue()} is not overridden, {@link #get()} is a plain {@link ThreadLocal} lookup.
+     */
+    private final boolean registerOnGet;
+    /**
+     * Whether {@link #copy(Object)} is overridden, then every capture need a fresh copy of value,
+     * and the captured snapshot can not be shared, see {@link Transmitter#capture()}.
+     */
+    final boolean copyOverridden;
+    /**
+     * Whether {@link #copy(Object)} is deferred to the first read in the thread running the task,
+     * see {@link #TransmittableThreadLocal(boolean)}.
+     */
+    final boolean lazyCopy;
+    /**
+     * Whether this is the internal {@link TransmittableThreadLocal} of the primitive variants, see {@link TtlLongLocal}.
+     */
+    final boolean primitive;
+    /**
+     * Whether {@link #beforeExecute()} or {@link #afterExecute()} is overridden,
+     * the callbacks of {@link TransmittableThreadLocal} not overriding them are never dispatched.
+     */
+    final boolean callbackOverridden;
+
+    public TransmittableThreadLocal() {
+        this(TransmissionPolicy.INHERIT_AND_TRANSMIT, false);
+    }
+
+    /**
+     * Create a {@link TransmittableThreadLocal} instance, with the lazy copy mode or not.
+     * <p>
+     * In the lazy copy mode, {@link Transmitter#capture()} captures the value reference without {@link #copy(Object)};
+     * the copy is done by the first {@link #get()} in the thread running the task, or never if the task does not read it.
+     * So the copy is of the value at the time of the first read instead of the time of task creation,
+     * the value should not be modified after the task is created.
+     * <p>
+     * The lazy copy mode takes effect only when {@link #copy(Object)} is overridden,
+     * useful for the expensive copy(e.g. deep copy of the big structure).
+     *
+     * @param lazyCopy whether defer {@link #copy(Object)} to the first read in the thread running the task
+     * @since 2.11.0
+     */
+    public TransmittableThreadLocal(boolean lazyCopy) {
+        this(TransmissionPolicy.INHERIT_AND_TRANSMIT, lazyCopy);
+    }
+
+    /**
+     * Create a {@link TransmittableThreadLocal} instance with the {@link TransmissionPolicy}.
+     *
+     * @param policy whether the value is inherited by the child thread and transmitted to the task
+     * @see TransmissionPolicy
+     * @since 2.11.0
+     */
+    public TransmittableThreadLocal(@Nonnull TransmissionPolicy policy) {
+        this(policy, false);
+    }
+
+    /**
+     * Create a {@link TransmittableThreadLocal} instance with the {@link TransmissionPolicy}, with the lazy copy mode or not.
+     *
+     * @param policy   whether the value is inherited by the child thread and transmitted to the task
+     * @param lazyCopy whether defer {@link #copy(Object)} to the first read in the thread running the task,
+     *                 see {@link #TransmittableThreadLocal(boolean)}
+     * @since 2.11.0
+     */
+    public TransmittableThreadLocal(@Nonnull TransmissionPolicy policy, boolean lazyCopy) {
+        if (policy == null) throw new NullPointerException("policy is null");
+
+        this.slotRef = TtlRegistry.newSlotRef(this);
+        this.slot = slotRef.slot;
+        this.policy = policy;
+        this.registerOnGet = policy.transmittable && isOverridden(getClass(), "initialValue");
+        this.copyOverridden = isOverridden(getClass(), "copy", Object.class);
+        this.lazyCopy = policy.transmittable && lazyCopy && copyOverridden;
+        this.primitive = this instanceof TtlLongLocal;
+        this.callbackOverridden = isOverridden(getClass(), "beforeExecute") || isOverridden(getClass(), "afterExecute");
+    }
+
+    /**
+     * The policy of {@link TransmittableThreadLocal} value, whether inherited by the child thread
+     * and whether transmitted to the task by {@link Transmitter}.
+     * <p>
+     * The value not transmitted is never registered to the thread,
+     * so it is skipped by capture/replay/restore of {@link Transmitter} with no cost, and not touched by them;
+     * the callbacks {@link #beforeExecute()}/{@link #afterExecute()} are not called either.
+     *
+     * @see #TransmittableThreadLocal(TransmissionPolicy)
+     * @since 2.11.0
+     */
+    public enum TransmissionPolicy {
+        /**
+         * inherited by the child thread and transmitted to the task, the default policy.
+         */
+        INHERIT_AND_TRANSMIT(true, true),
+        /**
+         * only inherited by the child thread, like {@link InheritableThreadLocal}.
+         */
+        INHERIT_ONLY(true, false),
+        /**
+         * only transmitted to the task, not inherited by the child thread.
+         */
+        TRANSMIT_ONLY(false, true),
+        /**
+         * neither inherited nor transmitted, like {@link ThreadLocal}; e.g. the thread local cache/buffer.
+         */
+        LOCAL_ONLY(false, false);
+
+        final boolean inheritable;
+        final boolean transmittable;
+
+        TransmissionPolicy(boolean inheritable, boolean transmittable) {
+            this.inheritable = inheritable;
+            this.transmittable = transmittable;
+        }
+    }
+
     /**
      * Computes the value for this transmittable thread-local variable
      * as a function of the source thread's value at the time the task
@@ -69,6 +195,21 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
         return parentValue;
     }
 
+    /**
+     * Computes the child's initial value for this thread-local variable as a function of the parent's value
+     * at the time the child thread is created.
+     * <p>
+     * Returns the parent value if inheritable by the {@link TransmissionPolicy}, otherwise {@link #initialValue()}.
+     * This method can be overridden if a different behavior is desired.
+     *
+     * @see TransmissionPolicy
+     * @since 2.11.0
+     */
+    @Override
+    protected T childValue(T parentValue) {
+        return policy.inheritable ? parentValue : initialValue();
+    }
+
     /**
      * Callback method before task object({@link TtlRunnable}/{@link TtlCallable}) execute.
      * <p>
@@ -101,19 +242,41 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
     @Override
     public final T get() {
         T value = super.get();
-        if (null != value) addValue();
+        if (lazyCopy && null != value) value = copyIfPending(value);
+        if (registerOnGet && null != value) addValue();
         return value;
     }
 
+    private T copyIfPending(T value) {
+        final TtlRegistry registry = holder.get();
+        if (!registry.isPendingCopy(slot)) return value;
+
+        // clear pending state before copy, avoid copy again when read in copy
+        registry.setPendingCopy(slot, false);
+        final T copied = copy(value);
+        // install the copy without bumping the version of registry, the replay/restore of the thread is still valid.
+        super.set(copied);
+        // but the last captured transmits the value not copied yet, the next capture should transmit the copy
+        // which may be modified by the task, e.g. to the nested task submitted in the task.
+        final TtlSnapshot lastCaptured = registry.lastCaptured();
+        if (lastCaptured != null && lastCaptured.contains(this)) registry.lastCaptured(null);
+        return copied;
+    }
+
     /**
      * see {@link InheritableThreadLocal#set}
      */
     @Override
     public final void set(T value) {
         super.set(value);
+        if (!policy.transmittable) return;
+
+        final TtlRegistry registry = holder.get();
         // may set null to remove value
-        if (null == value) removeValue();
-        else addValue();
+        if (null == value) registry.remove(this);
+        else registry.add(this);
+        if (lazyCopy) registry.setPendingCopy(slot, false);
+        registry.modified();
     }
 
     /**
@@ -121,11 +284,14 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
      */
     @Override
     public final void remove() {
-        removeValue();
+        if (policy.transmittable) removeValue();
         super.remove();
     }
 
-    private void superRemove() {
+    /**
+     * remove the value of {@link ThreadLocal}, the registration is not touched.
+     */
+    void superRemove() {
         super.remove();
     }
 
@@ -133,37 +299,70 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
         return copy(get());
     }
 
+    /**
+     * the value in the current thread without copy and registration.
+     */
+    private T rawValue() {
+        return super.get();
+    }
+
+    /**
+     * set the value which will be copied at the first read.
+     */
+    private void setPendingCopy(T value) {
+        set(value);
+        if (null != value) holder.get().setPendingCopy(slot, true);
+    }
+
     // Note about holder:
-    // 1. The value of holder is type Map<TransmittableThreadLocal<?>, ?> (WeakHashMap implementation),
-    //    but it is used as *set*.
-    // 2. WeakHashMap support null value.
-    private static InheritableThreadLocal<Map<TransmittableThreadLocal<?>, ?>> holder =
-            new InheritableThreadLocal<Map<TransmittableThreadLocal<?>, ?>>() {
+    // The value of holder is the per-thread registry of TransmittableThreadLocal instances,
+    // indexed by the slot of TransmittableThreadLocal, see TtlRegistry.
+    private static final InheritableThreadLocal<TtlRegistry> holder =
+            new InheritableThreadLocal<TtlRegistry>() {
                 @Override
-                protected Map<TransmittableThreadLocal<?>, ?> initialValue() {
-                    return new WeakHashMap<TransmittableThreadLocal<?>, Object>();
+                protected TtlRegistry initialValue() {
+                    return new TtlRegistry();
                 }
 
                 @Override
-                protected Map<TransmittableThreadLocal<?>, ?> childValue(Map<TransmittableThreadLocal<?>, ?> parentValue) {
-                    return new WeakHashMap<TransmittableThreadLocal<?>, Object>(parentValue);
+                protected TtlRegistry childValue(TtlRegistry parentValue) {
+                    return parentValue.copy();
                 }
             };
 
     private void addValue() {
-        if (!holder.get().containsKey(this)) {
-            holder.get().put(this, null); // WeakHashMap supports null value.
-        }
+        holder.get().add(this);
     }
 
-    private void removeValue() {
+    void removeValue() {
         holder.get().remove(this);
     }
 
-    private static void doExecuteCallback(boolean isBefore) {
-        for (Map.Entry<TransmittableThreadLocal<?>, ?> entry : holder.get().entrySet()) {
-            TransmittableThreadLocal<?> threadLocal = entry.getKey();
+    /**
+     * Whether the method declared in {@link TransmittableThreadLocal} or its super class is overridden by the subclass.
+     * <p>
+     * When the check is not permitted(eg: by {@link SecurityManager}), take it as overridden conservatively.
+     */
+    static boolean isOverridden(@Nonnull Class<?> clazz, @Nonnull String methodName, @Nonnull Class<?>... parameterTypes) {
+        try {
+            for (Class<?> c = clazz; c != TransmittableThreadLocal.class; c = c.getSuperclass()) {
+                try {
+                    c.getDeclaredMethod(methodName, parameterTypes);
+                    return true;
+                } catch (NoSuchMethodException e) {
+                    // check super class
+                }
+            }
+            return false;
+        } catch (SecurityException e) {
+            return true;
+        }
+    }
+
+    private static void doExecuteCallback(@Nonnull TtlRegistry registry, boolean isBefore) {
+        if (!registry.hasCallback()) return;
 
+        for (TransmittableThreadLocal<?> threadLocal = registry.nextCallbackFrom(0); threadLocal != null; threadLocal = registry.nextCallbackFrom(threadLocal.slot + 1)) {
             try {
                 if (isBefore) threadLocal.beforeExecute();
                 else threadLocal.afterExecute();
@@ -185,8 +384,8 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
             System.out.println("Start TransmittableThreadLocal Dump...");
         }
 
-        for (Map.Entry<TransmittableThreadLocal<?>, ?> entry : holder.get().entrySet()) {
-            final TransmittableThreadLocal<?> key = entry.getKey();
+        final TtlRegistry registry = holder.get();
+        for (TransmittableThreadLocal<?> key = registry.nextFrom(0); key != null; key = registry.nextFrom(key.slot + 1)) {
             System.out.println(key.get());
         }
         System.out.println("TransmittableThreadLocal Dump end!");
@@ -277,22 +476,73 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
     public static class Transmitter {
         /**
          * Capture all {@link TransmittableThreadLocal} values in current thread.
+         * <p>
+         * The captured values are immutable, so repeated capture without any {@link TransmittableThreadLocal}
+         * write in between returns the same captured object,
+         * unless some {@link TransmittableThreadLocal} overrides {@link TransmittableThreadLocal#copy(Object)}.
          *
          * @return the captured {@link TransmittableThreadLocal} values
          * @since 2.3.0
          */
         @Nonnull
         public static Object capture() {
-            Map<TransmittableThreadLocal<?>, Object> captured = new HashMap<TransmittableThreadLocal<?>, Object>();
-            for (TransmittableThreadLocal<?> threadLocal : holder.get().keySet()) {
-                captured.put(threadLocal, threadLocal.copyValue());
+            final TtlRegistry registry = holder.get();
+            final TtlSnapshot lastCaptured = registry.lastCaptured();
+            if (lastCaptured != null) return lastCaptured;
+
+            final int version = registry.version();
+            final TransmittableThreadLocal<?>[] ttls = new TransmittableThreadLocal<?>[registry.size()];
+            final Object[] values = new Object[ttls.length];
+            boolean[] pendingCopy = null;
+            long[] longValues = null;
+            int size = 0;
+            boolean shareable = true;
+            for (TransmittableThreadLocal<?> threadLocal = registry.nextFrom(0); threadLocal != null; threadLocal = registry.nextFrom(threadLocal.slot + 1)) {
+                ttls[size] = threadLocal;
+                if (threadLocal.primitive) {
+                    if (longValues == null) longValues = new long[ttls.length];
+                    longValues[size++] = ((TtlLongLocal) threadLocal).getLong(0);
+                } else if (threadLocal.lazyCopy) {
+                    if (pendingCopy == null) pendingCopy = new boolean[ttls.length];
+                    pendingCopy[size] = true;
+                    values[size++] = threadLocal.rawValue();
+                } else {
+                    values[size++] = threadLocal.copyValue();
+                }
+                // the value not copied yet is copied by every task at the first read, so shareable still
+                if (threadLocal.copyOverridden && !threadLocal.lazyCopy) shareable = false;
             }
+            final TtlSnapshot captured = TtlSnapshot.of(ttls, values, pendingCopy, longValues, size, shareable);
+            // share only if no write happened during capture
+            if (shareable && version == registry.version()) registry.lastCaptured(captured);
             return captured;
         }
 
+        /**
+         * Capture for the next task of a batch, the captured of the previous task is shared
+         * unless some {@link TransmittableThreadLocal} overrides {@link TransmittableThreadLocal#copy(Object)}.
+         *
+         * @param previous the captured of the previous task in batch, {@code null} for the first task
+         * @see TtlRunnable#gets(java.util.Collection, boolean, boolean)
+         * @see TtlCallable#gets(java.util.Collection, boolean, boolean)
+         */
+        @Nonnull
+        static Object captureForBatch(@Nullable Object previous) {
+            if (previous != null && ((TtlSnapshot) previous).shareable) return previous;
+            return capture();
+        }
+
         /**
          * Replay the captured {@link TransmittableThreadLocal} values from {@link #capture()},
          * and return the backup {@link TransmittableThreadLocal} values in current thread before replay.
+         * <p>
+         * If the current thread already holds the captured context(e.g. the task is run by the submitting thread
+         * with {@code CallerRunsPolicy}), replay and restore skip the work of backup and set values.
+         * <p>
+         * The backup is an immutable snapshot of the values in current thread, owned by the caller:
+         * restore it again restores the same values, and the backup not restored is just garbage collected.
+         * The pooled backup without allocation is used by {@link TtlRunnable}/{@link TtlCallable}
+         * and {@link #replayFrame(Object)}, which restore themselves exactly once.
          *
          * @param captured captured {@link TransmittableThreadLocal} values from other thread from {@link #capture()}
          * @return the backup {@link TransmittableThreadLocal} values before replay
@@ -301,33 +551,144 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
          */
         @Nonnull
         public static Object replay(@Nonnull Object captured) {
-            @SuppressWarnings("unchecked")
-            Map<TransmittableThreadLocal<?>, Object> capturedMap = (Map<TransmittableThreadLocal<?>, Object>) captured;
-            Map<TransmittableThreadLocal<?>, Object> backup = new HashMap<TransmittableThreadLocal<?>, Object>();
+            final TtlSnapshot capturedSnapshot = (TtlSnapshot) captured;
+            final TtlRegistry registry = holder.get();
+            final TtlSnapshot backup = backupOf(registry);
+            replaySnapshot(registry, capturedSnapshot);
 
-            for (Iterator<? extends Map.Entry<TransmittableThreadLocal<?>, ?>> iterator = holder.get().entrySet().iterator();
-                 iterator.hasNext(); ) {
-                Map.Entry<TransmittableThreadLocal<?>, ?> next = iterator.next();
-                TransmittableThreadLocal<?> threadLocal = next.getKey();
+            // call beforeExecute callback
+            doExecuteCallback(registry, true);
+            return backup;
+        }
 
-                // backup
-                backup.put(threadLocal, threadLocal.get());
+        /**
+         * the values in current thread as they are, without copy and registration; the last captured if still valid.
+         */
+        @Nonnull
+        private static TtlSnapshot backupOf(@Nonnull TtlRegistry registry) {
+            final TtlSnapshot lastCaptured = registry.lastCaptured();
+            if (lastCaptured != null && lastCaptured.pendingCopy == null) return lastCaptured;
 
-                // clear the TTL values that is not in captured
-                // avoid the extra TTL values after replay when run task
-                if (!capturedMap.containsKey(threadLocal)) {
-                    iterator.remove();
-                    threadLocal.superRemove();
+            final TransmittableThreadLocal<?>[] ttls = new TransmittableThreadLocal<?>[registry.size()];
+            final Object[] values = new Object[ttls.length];
+            boolean[] pendingCopy = null;
+            long[] longValues = null;
+            int size = 0;
+            boolean shareable = true;
+            for (TransmittableThreadLocal<?> threadLocal = registry.nextFrom(0); threadLocal != null; threadLocal = registry.nextFrom(threadLocal.slot + 1)) {
+                ttls[size] = threadLocal;
+                if (threadLocal.primitive) {
+                    if (longValues == null) longValues = new long[ttls.length];
+                    longValues[size++] = ((TtlLongLocal) threadLocal).getLong(0);
+                    continue;
+                }
+                if (threadLocal.lazyCopy && registry.isPendingCopy(threadLocal.slot)) {
+                    if (pendingCopy == null) pendingCopy = new boolean[ttls.length];
+                    pendingCopy[size] = true;
                 }
+                values[size++] = threadLocal.rawValue();
+                // the value not copied is not the captured of the TTL overriding copy
+                if (threadLocal.copyOverridden) shareable = false;
+            }
+            return TtlSnapshot.of(ttls, values, pendingCopy, longValues, size, shareable);
+        }
+
+        /**
+         * replay and return the pooled backup, see {@link TtlBackup}.
+         * <p>
+         * Beyond the max depth of the pooled frames, the backup is not pooled and records into its own journal.
+         */
+        @Nonnull
+        static TtlBackup replayBackup(@Nonnull Object captured) {
+            final TtlSnapshot capturedSnapshot = (TtlSnapshot) captured;
+            final TtlRegistry registry = holder.get();
+            final TtlBackup backup = registry.pushFrame();
+            replay(registry, capturedSnapshot, backup);
+            return backup;
+        }
+
+        /**
+         * replay and record the backup. The changed TTLs are pushed to the journal stack of thread,
+         * the TTL already holding the captured value is neither recorded nor set, so the nested replays cost
+         * proportional to the differing TTLs.
+         */
+        private static void replay(@Nonnull TtlRegistry registry, @Nonnull TtlSnapshot capturedSnapshot, @Nonnull TtlBackup backup) {
+            final TtlJournal journal = backup.journal;
+            backup.captured = capturedSnapshot;
+            backup.previousCaptured = registry.lastCaptured();
+            backup.base = journal.size;
+
+            // the shared snapshot is valid until the next write in current thread,
+            // so current thread holds exactly the captured values; the captured is also the backup.
+            // unless some value not copied yet is copied by the read in current thread, the task needs its own copy.
+            if (registry.lastCaptured() == capturedSnapshot && capturedSnapshot.pendingCopy == null) {
+                backup.fastPath = true;
+                backup.end = journal.size;
+                doExecuteCallback(registry, true);
+                return;
             }
+            backup.fastPath = false;
 
-            // set values to captured TTL
-            setTtlValuesTo(capturedMap);
+            // merge walk of the registered and the captured TTLs in slot order,
+            // record the changed TTLs to journal
+            journal.ensureCapacity(registry.size() + capturedSnapshot.size());
+            final TransmittableThreadLocal<?>[] capturedTtls = capturedSnapshot.ttls;
+            int i = 0;
+            TransmittableThreadLocal<?> threadLocal = registry.nextFrom(0);
+            while (threadLocal != null || i < capturedTtls.length) {
+                final TransmittableThreadLocal<?> capturedTtl = i < capturedTtls.length ? capturedTtls[i] : null;
+                if (capturedTtl == null || threadLocal != null && threadLocal.slot < capturedTtl.slot) {
+                    // clear the TTL values that is not in captured
+                    // avoid the extra TTL values after replay when run task
+                    record(journal, registry, threadLocal);
+                    registry.remove(threadLocal);
+                    threadLocal.superRemove();
+                    threadLocal = registry.nextFrom(threadLocal.slot + 1);
+                } else {
+                    if (threadLocal == capturedTtl) {
+                        threadLocal = registry.nextFrom(threadLocal.slot + 1);
+                        if (holdsCaptured(capturedTtl, capturedSnapshot, i)) {
+                            i++;
+                            continue;
+                        }
+                        record(journal, registry, capturedTtl);
+                    } else {
+                        journal.addAbsent(capturedTtl);
+                    }
+                    // set value to captured TTL
+                    setTtlValue(capturedTtl, capturedSnapshot.values[i], capturedSnapshot.isPendingCopy(i), capturedSnapshot.longValue(i));
+                    i++;
+                }
+            }
+            backup.end = journal.size;
+            // current thread holds exactly the captured values now, so the capture in task(e.g. the dependent
+            // async stages or the nested tasks) is the captured itself, and the nested replay of it is the fast path.
+            if (capturedSnapshot.shareable) registry.lastCaptured(capturedSnapshot);
 
             // call beforeExecute callback
-            doExecuteCallback(true);
+            doExecuteCallback(registry, true);
 
-            return backup;
+            backup.version = registry.version();
+        }
+
+        /**
+         * whether the registered TTL holds the captured value already.
+         * <p>
+         * The captured value not copied yet is never held: the read in task installs its copy without bumping
+         * the version of registry, so it's always recorded and restored.
+         */
+        private static boolean holdsCaptured(@Nonnull TransmittableThreadLocal<?> threadLocal,
+                                             @Nonnull TtlSnapshot capturedSnapshot, int index) {
+            if (threadLocal.primitive) return ((TtlLongLocal) threadLocal).getLong(0) == capturedSnapshot.longValue(index);
+            return threadLocal.rawValue() == capturedSnapshot.values[index] && !capturedSnapshot.isPendingCopy(index);
+        }
+
+        /**
+         * record the value before replay, keep the value not copied yet as it is.
+         */
+        private static void record(@Nonnull TtlJournal journal, @Nonnull TtlRegistry registry, @Nonnull TransmittableThreadLocal<?> threadLocal) {
+            if (threadLocal.primitive) journal.addLong(threadLocal, ((TtlLongLocal) threadLocal).getLong(0));
+            else journal.add(threadLocal, threadLocal.rawValue(), threadLocal.lazyCopy && registry.isPendingCopy(threadLocal.slot));
         }
 
         /**
@@ -339,7 +700,7 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
          */
         @Nonnull
         public static Object clear() {
-            return replay(Collections.emptyMap());
+            return replay(TtlSnapshot.EMPTY);
         }
 
         /**
@@ -351,34 +712,244 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
          * @since 2.3.0
          */
         public static void restore(@Nonnull Object backup) {
-            @SuppressWarnings("unchecked")
-            Map<TransmittableThreadLocal<?>, Object> backupMap = (Map<TransmittableThreadLocal<?>, Object>) backup;
+            final TtlRegistry registry = holder.get();
+            // call afterExecute callback
+            doExecuteCallback(registry, false);
+
+            restoreSnapshot(registry, (TtlSnapshot) backup);
+        }
+
+        private static void restore(@Nonnull TtlRegistry registry, @Nonnull TtlBackup backup) {
             // call afterExecute callback
-            doExecuteCallback(false);
+            doExecuteCallback(registry, false);
 
-            for (Iterator<? extends Map.Entry<TransmittableThreadLocal<?>, ?>> iterator = holder.get().entrySet().iterator();
-                 iterator.hasNext(); ) {
-                Map.Entry<TransmittableThreadLocal<?>, ?> next = iterator.next();
-                TransmittableThreadLocal<?> threadLocal = next.getKey();
+            final TtlSnapshot capturedSnapshot = backup.captured;
+            if (backup.fastPath) {
+                restoreSnapshot(registry, capturedSnapshot);
+                return;
+            }
+
+            final TtlJournal journal = backup.journal;
+            final int base = backup.base;
+            final int end = backup.end;
+            if (registry.version() != backup.version) {
+                // the TTL values are written after replay.
+                // the captured TTLs not recorded held the captured values before replay, set back them;
+                final TransmittableThreadLocal<?>[] capturedTtls = capturedSnapshot.ttls;
+                for (int i = 0; i < capturedTtls.length; i++) {
+                    if (!journal.contains(capturedTtls[i], base, end)) {
+                        setTtlValue(capturedTtls[i], capturedSnapshot.values[i], capturedSnapshot.isPendingCopy(i), capturedSnapshot.longValue(i));
+                    }
+                }
+                // clear the TTL values registered after replay, all other TTLs registered before replay are recorded in journal.
+                for (TransmittableThreadLocal<?> threadLocal = registry.nextFrom(0); threadLocal != null; threadLocal = registry.nextFrom(threadLocal.slot + 1)) {
+                    if (!journal.contains(threadLocal, base, end) && !capturedSnapshot.contains(threadLocal)) {
+                        registry.remove(threadLocal);
+                        threadLocal.superRemove();
+                    }
+                }
+            }
+
+            // undo journal
+            final TransmittableThreadLocal<?>[] ttls = journal.ttls;
+            final Object[] values = journal.values;
+            for (int i = base; i < end; i++) {
+                final TransmittableThreadLocal<?> threadLocal = ttls[i];
+                if (values[i] == TtlJournal.ABSENT) {
+                    registry.remove(threadLocal);
+                    threadLocal.superRemove();
+                } else {
+                    setTtlValue(threadLocal, values[i], journal.isPendingCopy(i), journal.longValue(i));
+                }
+            }
+            // current thread holds exactly the values before replay again
+            if (backup.previousCaptured != null) registry.lastCaptured(backup.previousCaptured);
+        }
 
+        /**
+         * restore the backup snapshot, of {@link #replay(Object)} or the fast path replay.
+         */
+        private static void restoreSnapshot(@Nonnull TtlRegistry registry, @Nonnull TtlSnapshot backupSnapshot) {
+            // no write since replay of the fast path, nothing to restore
+            if (registry.lastCaptured() == backupSnapshot) return;
+
+            for (TransmittableThreadLocal<?> threadLocal = registry.nextFrom(0); threadLocal != null; threadLocal = registry.nextFrom(threadLocal.slot + 1)) {
                 // clear the TTL values that is not in backup
                 // avoid the extra TTL values after restore
-                if (!backupMap.containsKey(threadLocal)) {
-                    iterator.remove();
+                if (!backupSnapshot.contains(threadLocal)) {
+                    registry.remove(threadLocal);
                     threadLocal.superRemove();
                 }
             }
 
             // restore TTL values
-            setTtlValuesTo(backupMap);
+            final TransmittableThreadLocal<?>[] ttls = backupSnapshot.ttls;
+            for (int i = 0; i < ttls.length; i++) {
+                setTtlValue(ttls[i], backupSnapshot.values[i], backupSnapshot.isPendingCopy(i), backupSnapshot.longValue(i));
+            }
+            if (backupSnapshot.shareable) registry.lastCaptured(backupSnapshot);
         }
 
-        private static void setTtlValuesTo(@Nonnull Map<TransmittableThreadLocal<?>, Object> ttlValues) {
-            for (Map.Entry<TransmittableThreadLocal<?>, Object> entry : ttlValues.entrySet()) {
-                @SuppressWarnings("unchecked")
-                TransmittableThreadLocal<Object> threadLocal = (TransmittableThreadLocal<Object>) entry.getKey();
-                threadLocal.set(entry.getValue());
+        private static void setTtlValue(@Nonnull TransmittableThreadLocal<?> ttl, Object value, boolean pendingCopy, long longValue) {
+            if (ttl.primitive) {
+                ((TtlLongLocal) ttl).setLong(longValue);
+                return;
             }
+
+            @SuppressWarnings("unchecked")
+            TransmittableThreadLocal<Object> threadLocal = (TransmittableThreadLocal<Object>) ttl;
+            if (pendingCopy) threadLocal.setPendingCopy(value);
+            else threadLocal.set(value);
+        }
+
+        /**
+         * Replay the captured {@link TransmittableThreadLocal} values from {@link #capture()},
+         * and return the frame which restores the {@link TransmittableThreadLocal} values before replay when closed.
+         * <p>
+         * Same as {@link #replay(Object)}/{@link #restore(Object)}, but used with the {@code try-with-resources} statement:
+         *
+         * <pre>{@code try (TtlFrame frame = Transmitter.replayFrame(captured)) {
+         *     // run biz logic with the replayed TransmittableThreadLocal values
+         * }}</pre>
+         * <p>
+         * The frame is pooled per thread with its backup recorded into the journal stack of thread,
+         * so no allocation for replay and restore, and the nested replays cost no copies of values.
+         * <p>
+         * {@link TtlFrame} is {@link AutoCloseable} of Java 7+, use {@link #replay(Object)}/{@link #restore(Object)} on Java 6.
+         *
+         * @param captured captured {@link TransmittableThreadLocal} values from other thread from {@link #capture()}
+         * @return the frame to close after biz logic
+         * @see TtlFrame
+         * @since 2.11.0
+         */
+        @Nonnull
+        public static TtlFrame replayFrame(@Nonnull Object captured) {
+            final TtlBackup backup = replayBackup(captured);
+            TtlFrame frame = backup.frame;
+            if (frame == null) frame = backup.frame = new TtlFrame(backup);
+            return frame;
+        }
+
+        /**
+         * Replay for the run of periodic task, by the plan of the previous run if current thread holds the same
+         * baseline values, otherwise the plan is computed for the baseline of current thread.
+         * The plan is kept in the returned backup, {@link TtlBackup#plan}, for the next run.
+         * <p>
+         * The baseline is the last captured of current thread, or the empty snapshot if no {@link TransmittableThreadLocal}
+         * value in current thread; replay as {@link #replay(Object)} if no baseline.
+         *
+         * @see TtlReplayPlan
+         * @see TtlRunnable#getForPeriodic(Runnable)
+         */
+        @Nonnull
+        static TtlBackup replayBackup(@Nonnull Object captured, @Nullable TtlReplayPlan plan) {
+            final TtlSnapshot capturedSnapshot = (TtlSnapshot) captured;
+            final TtlRegistry registry = holder.get();
+            final TtlBackup backup = registry.pushFrame();
+
+            TtlSnapshot baseline = registry.lastCaptured();
+            if (baseline == null && registry.size() == 0) baseline = TtlSnapshot.EMPTY;
+            if (baseline != null && baseline != capturedSnapshot
+                    && (plan == null || plan.baseline != baseline || plan.captured != capturedSnapshot)) {
+                plan = TtlReplayPlan.of(baseline, capturedSnapshot);
+            }
+
+            if (plan == null || plan.baseline != baseline || plan.captured != capturedSnapshot) {
+                replay(registry, capturedSnapshot, backup);
+            } else {
+                replay(registry, plan, backup);
+            }
+            backup.plan = plan;
+            return backup;
+        }
+
+        /**
+         * replay by the plan, same records and values as the merge walk of {@link #replay(Object)}
+         * since current thread holds exactly the baseline of plan.
+         */
+        private static void replay(@Nonnull TtlRegistry registry, @Nonnull TtlReplayPlan plan, @Nonnull TtlBackup backup) {
+            final TtlJournal journal = backup.journal;
+            final TtlSnapshot capturedSnapshot = plan.captured;
+            backup.captured = capturedSnapshot;
+            backup.previousCaptured = plan.baseline;
+            backup.fastPath = false;
+            backup.base = journal.size;
+
+            journal.addAll(plan);
+            final TransmittableThreadLocal<?>[] removes = plan.removes;
+            for (int i = 0; i < plan.removeCount; i++) {
+                registry.remove(removes[i]);
+                removes[i].superRemove();
+            }
+            final int[] sets = plan.sets;
+            for (int i = 0; i < plan.setCount; i++) {
+                final int index = sets[i];
+                setTtlValue(capturedSnapshot.ttls[index], capturedSnapshot.values[index], capturedSnapshot.isPendingCopy(index), capturedSnapshot.longValue(index));
+            }
+            backup.end = journal.size;
+            if (capturedSnapshot.shareable) registry.lastCaptured(capturedSnapshot);
+
+            // call beforeExecute callback
+            doExecuteCallback(registry, true);
+
+            backup.version = registry.version();
+        }
+
+        static void restoreBackup(@Nonnull TtlBackup backup) {
+            if (backup.captured == null) throw new IllegalStateException("The backup is restored already!");
+            final TtlRegistry registry = holder.get();
+            if (registry != backup.registry) throw new IllegalStateException("The backup is restored in the other thread!");
+
+            try {
+                restore(registry, backup);
+            } finally {
+                if (backup.pooled) registry.popFrame(backup);
+                else backup.captured = null;
+            }
+        }
+
+        /**
+         * Replay the captured values in the new thread which runs only one task and then terminates
+         * (e.g. the thread of thread-per-task executor), so nothing to backup and restore.
+         * The TTLs inherited from the thread creating the new thread and not captured are cleared.
+         *
+         * @see TtlRunnable#getForNewThread(Runnable)
+         * @see TtlCallable#getForNewThread(java.util.concurrent.Callable)
+         */
+        static void replayOnNewThread(@Nonnull Object captured) {
+            final TtlRegistry registry = holder.get();
+            replaySnapshot(registry, (TtlSnapshot) captured);
+
+            // call beforeExecute callback
+            doExecuteCallback(registry, true);
+        }
+
+        /**
+         * set the captured values to current thread, the TTLs not captured are cleared.
+         */
+        private static void replaySnapshot(@Nonnull TtlRegistry registry, @Nonnull TtlSnapshot capturedSnapshot) {
+            if (registry.lastCaptured() != capturedSnapshot || capturedSnapshot.pendingCopy != null) {
+                for (TransmittableThreadLocal<?> threadLocal = registry.nextFrom(0); threadLocal != null; threadLocal = registry.nextFrom(threadLocal.slot + 1)) {
+                    if (!capturedSnapshot.contains(threadLocal)) {
+                        registry.remove(threadLocal);
+                        threadLocal.superRemove();
+                    }
+                }
+
+                final TransmittableThreadLocal<?>[] ttls = capturedSnapshot.ttls;
+                for (int i = 0; i < ttls.length; i++) {
+                    if (registry.contains(ttls[i]) && holdsCaptured(ttls[i], capturedSnapshot, i)) continue;
+                    setTtlValue(ttls[i], capturedSnapshot.values[i], capturedSnapshot.isPendingCopy(i), capturedSnapshot.longValue(i));
+                }
+                if (capturedSnapshot.shareable) registry.lastCaptured(capturedSnapshot);
+            }
+        }
+
+        /**
+         * call afterExecute callback of the task run by {@link #replayOnNewThread(Object)}, no restore.
+         */
+        static void afterExecuteOnNewThread() {
+            doExecuteCallback(holder.get(), false);
         }
 
         /**
@@ -394,11 +965,11 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
          * @since 2.3.1
          */
         public static <R> R runSupplierWithCaptured(@Nonnull Object captured, @Nonnull Supplier<R> bizLogic) {
-            Object backup = replay(captured);
+            final TtlBackup backup = replayBackup(captured);
             try {
                 return bizLogic.get();
             } finally {
-                restore(backup);
+                restoreBackup(backup);
             }
         }
 
@@ -413,11 +984,11 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
          * @since 2.9.0
          */
         public static <R> R runSupplierWithClear(@Nonnull Supplier<R> bizLogic) {
-            Object backup = clear();
+            final TtlBackup backup = replayBackup(TtlSnapshot.EMPTY);
             try {
                 return bizLogic.get();
             } finally {
-                restore(backup);
+                restoreBackup(backup);
             }
         }
 
@@ -435,11 +1006,11 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
          * @since 2.3.1
          */
         public static <R> R runCallableWithCaptured(@Nonnull Object captured, @Nonnull Callable<R> bizLogic) throws Exception {
-            Object backup = replay(captured);
+            final TtlBackup backup = replayBackup(captured);
             try {
                 return bizLogic.call();
             } finally {
-                restore(backup);
+                restoreBackup(backup);
             }
         }
 
@@ -455,11 +1026,11 @@ public class TransmittableThreadLocal<T> extends InheritableThreadLocal<T> {
          * @since 2.9.0
          */
         public static <R> R runCallableWithClear(@Nonnull Callable<R> bizLogic) throws Exception {
-            Object backup = clear();
+            final TtlBackup backup = replayBackup(TtlSnapshot.EMPTY);
             try {
                 return bizLogic.call();
             } finally {
-                restore(backup);
+                restoreBackup(backup);
             }
         }
 
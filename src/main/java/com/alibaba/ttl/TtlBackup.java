@@ -0,0 +1,68 @@
+package com.alibaba.ttl;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The pooled backup of a replay, recorded into the journal stack of thread.
+ * <p>
+ * The backup instances are pooled per thread as the frames of the journal stack of thread, see {@link TtlRegistry#pushFrame()};
+ * reused by the next replay after restored, so the backup must be restored exactly once in the thread created it.
+ * The nested backups should be restored in the reverse order of creation.
+ * <p>
+ * So it's used only by the replays restoring themselves, e.g. {@link TtlRunnable}; the backup of the public
+ * {@link TransmittableThreadLocal.Transmitter#replay(Object)} is an unpooled {@link TtlSnapshot}.
+ * <p>
+ * Only the types of Java 6 are referenced, the {@code try-with-resources} scope of Java 7+ is {@link TtlFrame}.
+ *
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ * @see TtlFrame
+ * @see TtlJournal
+ * @since 2.11.0
+ */
+final class TtlBackup {
+    final TtlRegistry registry;
+    /**
+     * the journal recorded into, the journal stack of thread if pooled.
+     */
+    final TtlJournal journal;
+    /**
+     * whether pooled by the registry, the backup beyond the max pooled depth is not, see {@link TtlRegistry#pushFrame()}.
+     */
+    final boolean pooled;
+    /**
+     * the replayed snapshot, {@code null} after restored.
+     */
+    TtlSnapshot captured;
+    /**
+     * the last captured of thread before replay, valid again after restore.
+     */
+    TtlSnapshot previousCaptured;
+    /**
+     * whether the current thread already held the captured values before replay, nothing recorded.
+     */
+    boolean fastPath;
+    /**
+     * the range {@code [base, end)} of the records in the journal stack of thread, see {@link TtlJournal}.
+     */
+    int base;
+    int end;
+    /**
+     * the version of registry after replay.
+     */
+    int version;
+    /**
+     * the plan of the periodic task replay, kept for its next run; see {@link TtlReplayPlan}.
+     */
+    TtlReplayPlan plan;
+    /**
+     * the {@code try-with-resources} scope of this backup, created by the first
+     * {@link TransmittableThreadLocal.Transmitter#replayFrame(Object)} and pooled with this backup.
+     */
+    TtlFrame frame;
+
+    TtlBackup(@Nonnull TtlRegistry registry, @Nonnull TtlJournal journal, boolean pooled) {
+        this.registry = registry;
+        this.journal = journal;
+        this.pooled = pooled;
+    }
+}
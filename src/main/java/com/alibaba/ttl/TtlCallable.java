@@ -7,7 +7,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import static com.alibaba.ttl.TransmittableThreadLocal.Transmitter.*;
 
@@ -29,12 +29,23 @@ import static com.alibaba.ttl.TransmittableThreadLocal.Transmitter.*;
  * @since 0.9.0
  */
 public final class TtlCallable<V> implements Callable<V>, TtlEnhanced {
-    private final AtomicReference<Object> capturedRef;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<TtlCallable, Object> capturedUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(TtlCallable.class, Object.class, "captured");
+
+    /**
+     * cleared by {@link #capturedUpdater} when release TTL value reference after call.
+     */
+    private volatile Object captured;
     private final Callable<V> callable;
     private final boolean releaseTtlValueReferenceAfterCall;
 
     private TtlCallable(@Nonnull Callable<V> callable, boolean releaseTtlValueReferenceAfterCall) {
-        this.capturedRef = new AtomicReference<Object>(capture());
+        this(callable, capture(), releaseTtlValueReferenceAfterCall);
+    }
+
+    private TtlCallable(@Nonnull Callable<V> callable, @Nonnull Object captured, boolean releaseTtlValueReferenceAfterCall) {
+        this.captured = captured;
         this.callable = callable;
         this.releaseTtlValueReferenceAfterCall = releaseTtlValueReferenceAfterCall;
     }
@@ -44,16 +55,16 @@ public final class TtlCallable<V> implements Callable<V>, TtlEnhanced {
      */
     @Override
     public V call() throws Exception {
-        Object captured = capturedRef.get();
-        if (captured == null || releaseTtlValueReferenceAfterCall && !capturedRef.compareAndSet(captured, null)) {
+        Object captured = this.captured;
+        if (captured == null || releaseTtlValueReferenceAfterCall && !capturedUpdater.compareAndSet(this, captured, null)) {
             throw new IllegalStateException("TTL value reference is released after call!");
         }
 
-        Object backup = replay(captured);
+        final TtlBackup backup = replayBackup(captured);
         try {
             return callable.call();
         } finally {
-            restore(backup);
+            restoreBackup(backup);
         }
     }
 
@@ -106,7 +117,10 @@ public final class TtlCallable<V> implements Callable<V>, TtlEnhanced {
      */
     @Nullable
     public static <T> TtlCallable<T> get(@Nullable Callable<T> callable, boolean releaseTtlValueReferenceAfterCall) {
-        return get(callable, releaseTtlValueReferenceAfterCall, false);
+        if (null == callable) return null;
+
+        if (callable instanceof TtlEnhanced) throw new IllegalStateException("Already TtlCallable!");
+        return new TtlCallable<T>(callable, releaseTtlValueReferenceAfterCall);
     }
 
     /**
@@ -117,18 +131,53 @@ public final class TtlCallable<V> implements Callable<V>, TtlEnhanced {
      * @param callable                          input {@link Callable}
      * @param releaseTtlValueReferenceAfterCall release TTL value reference after run, avoid memory leak even if {@link TtlRunnable} is referred.
      * @param idempotent                        is idempotent or not. {@code true} will cover up bugs! <b>DO NOT</b> set, only when you know why.
-     * @return Wrapped {@link Callable}
+     * @return Wrapped {@link Callable}, or the input {@link Callable} if it's {@link TtlEnhanced} already and idempotent
      */
     @Nullable
-    public static <T> TtlCallable<T> get(@Nullable Callable<T> callable, boolean releaseTtlValueReferenceAfterCall, boolean idempotent) {
-        if (null == callable) return null;
+    public static <T> Callable<T> get(@Nullable Callable<T> callable, boolean releaseTtlValueReferenceAfterCall, boolean idempotent) {
+        // avoid redundant decoration, and ensure idempotency
+        if (idempotent && callable instanceof TtlEnhanced) return callable;
+        return get(callable, releaseTtlValueReferenceAfterCall);
+    }
 
-        if (callable instanceof TtlEnhanced) {
-            // avoid redundant decoration, and ensure idempotency
-            if (idempotent) return (TtlCallable<T>) callable;
-            else throw new IllegalStateException("Already TtlCallable!");
+    /**
+     * Factory method, wrap input {@link Callable} for the new thread which runs only the task and then terminates,
+     * the captured {@link TransmittableThreadLocal} values are installed without backup and restore.
+     *
+     * @param callable input {@link Callable}. if input is {@code null}, return {@code null}.
+     * @return Wrapped {@link Callable}, or the input {@link Callable} if it's {@link TtlEnhanced} already
+     * @see TtlRunnable#getForNewThread(Runnable)
+     * @since 2.11.0
+     */
+    @Nullable
+    public static <T> Callable<T> getForNewThread(@Nullable Callable<T> callable) {
+        if (null == callable || callable instanceof TtlEnhanced) return callable;
+        return new NewThreadCallable<T>(callable, capture());
+    }
+
+    private static final class NewThreadCallable<V> implements Callable<V>, TtlEnhanced {
+        private final Callable<V> callable;
+        private final Object captured;
+
+        NewThreadCallable(@Nonnull Callable<V> callable, @Nonnull Object captured) {
+            this.callable = callable;
+            this.captured = captured;
+        }
+
+        @Override
+        public V call() throws Exception {
+            replayOnNewThread(captured);
+            try {
+                return callable.call();
+            } finally {
+                afterExecuteOnNewThread();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return this.getClass().getName() + " - " + callable.toString();
         }
-        return new TtlCallable<T>(callable, releaseTtlValueReferenceAfterCall);
     }
 
     /**
@@ -139,7 +188,7 @@ public final class TtlCallable<V> implements Callable<V>, TtlEnhanced {
      */
     @Nonnull
     public static <T> List<TtlCallable<T>> gets(@Nullable Collection<? extends Callable<T>> tasks) {
-        return gets(tasks, false, false);
+        return gets(tasks, false);
     }
 
     /**
@@ -151,24 +200,45 @@ public final class TtlCallable<V> implements Callable<V>, TtlEnhanced {
      */
     @Nonnull
     public static <T> List<TtlCallable<T>> gets(@Nullable Collection<? extends Callable<T>> tasks, boolean releaseTtlValueReferenceAfterCall) {
-        return gets(tasks, releaseTtlValueReferenceAfterCall, false);
+        if (null == tasks) return Collections.emptyList();
+
+        List<TtlCallable<T>> copy = new ArrayList<TtlCallable<T>>(tasks.size());
+        Object captured = null;
+        for (Callable<T> task : tasks) {
+            if (null == task || task instanceof TtlEnhanced) {
+                copy.add(TtlCallable.get(task, releaseTtlValueReferenceAfterCall));
+            } else {
+                captured = captureForBatch(captured);
+                copy.add(new TtlCallable<T>(task, captured, releaseTtlValueReferenceAfterCall));
+            }
+        }
+        return copy;
     }
 
     /**
      * wrap input {@link Callable} Collection to {@link TtlCallable} Collection.
+     * <p>
+     * The {@link TransmittableThreadLocal} values are captured once and shared by all wrapped tasks,
+     * unless some {@link TransmittableThreadLocal} overrides {@link TransmittableThreadLocal#copy(Object)}.
      *
      * @param tasks                             task to be wrapped
      * @param releaseTtlValueReferenceAfterCall release TTL value reference after run, avoid memory leak even if {@link TtlRunnable} is referred.
      * @param idempotent                        is idempotent or not. {@code true} will cover up bugs! <b>DO NOT</b> set, only when you know why.
-     * @return Wrapped {@link Callable}
+     * @return Wrapped {@link Callable}, the input {@link Callable} kept if it's {@link TtlEnhanced} already and idempotent
      */
     @Nonnull
-    public static <T> List<TtlCallable<T>> gets(@Nullable Collection<? extends Callable<T>> tasks, boolean releaseTtlValueReferenceAfterCall, boolean idempotent) {
+    public static <T> List<Callable<T>> gets(@Nullable Collection<? extends Callable<T>> tasks, boolean releaseTtlValueReferenceAfterCall, boolean idempotent) {
         if (null == tasks) return Collections.emptyList();
 
-        List<TtlCallable<T>> copy = new ArrayList<TtlCallable<T>>();
+        List<Callable<T>> copy = new ArrayList<Callable<T>>(tasks.size());
+        Object captured = null;
         for (Callable<T> task : tasks) {
-            copy.add(TtlCallable.get(task, releaseTtlValueReferenceAfterCall, idempotent));
+            if (null == task || task instanceof TtlEnhanced) {
+                copy.add(TtlCallable.get(task, releaseTtlValueReferenceAfterCall, idempotent));
+            } else {
+                captured = captureForBatch(captured);
+                copy.add(new TtlCallable<T>(task, captured, releaseTtlValueReferenceAfterCall));
+            }
         }
         return copy;
     }
@@ -177,7 +247,8 @@ public final class TtlCallable<V> implements Callable<V>, TtlEnhanced {
      * Unwrap {@link TtlCallable} to the original/underneath one.
      * <p>
      * this method is {@code null}-safe, when input {@code Callable} parameter is {@code null}, return {@code null};
-     * if input {@code Callable} parameter is not a {@link TtlCallable} just return input {@code Callable}.
+     * if input {@code Callable} parameter is not a {@link TtlCallable} or the task of {@link #getForNewThread(Callable)}
+     * just return input {@code Callable}.
      * <p>
      * so {@code TtlCallable.unwrap(TtlCallable.get(callable))} will always return the same input {@code callable} object.
      *
@@ -186,8 +257,9 @@ public final class TtlCallable<V> implements Callable<V>, TtlEnhanced {
      */
     @Nullable
     public static <T> Callable<T> unwrap(@Nullable Callable<T> callable) {
-        if (!(callable instanceof TtlCallable)) return callable;
-        else return ((TtlCallable<T>) callable).getCallable();
+        if (callable instanceof TtlCallable) return ((TtlCallable<T>) callable).getCallable();
+        if (callable instanceof NewThreadCallable) return ((NewThreadCallable<T>) callable).callable;
+        return callable;
     }
 
     /**
@@ -207,8 +279,7 @@ public final class TtlCallable<V> implements Callable<V>, TtlEnhanced {
 
         List<Callable<T>> copy = new ArrayList<Callable<T>>();
         for (Callable<T> task : tasks) {
-            if (!(task instanceof TtlCallable)) copy.add(task);
-            else copy.add(((TtlCallable<T>) task).getCallable());
+            copy.add(unwrap(task));
         }
         return copy;
     }
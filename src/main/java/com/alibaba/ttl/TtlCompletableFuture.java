@@ -0,0 +1,280 @@
+package com.alibaba.ttl;
+
+import com.alibaba.ttl.threadpool.agent.TtlAgent;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+import static com.alibaba.ttl.TransmittableThreadLocal.Transmitter.capture;
+
+/**
+ * {@link TtlCompletableFuture} is the {@link CompletableFuture} transmitting {@link TransmittableThreadLocal}
+ * to its async stages.
+ * <p>
+ * {@link CompletableFuture#supplyAsync(Supplier)} and the async stages without executor, e.g.
+ * {@link CompletableFuture#thenApplyAsync(Function)}, run by {@link ForkJoinPool#commonPool()} and transmit nothing.
+ * The async stage of {@link TtlCompletableFuture} runs with the {@link TransmittableThreadLocal} values captured
+ * when the stage is created, in the thread creating it. The capture is cheap when the values are not changed since
+ * the last capture, the captured values are shared by the stages of chain instead of a fresh capture per stage.
+ * <p>
+ * Use the static factory methods {@link #supplyAsync} / {@link #runAsync} instead of the ones of {@link CompletableFuture}:
+ *
+ * <pre>{@code TtlCompletableFuture.supplyAsync(supplier)
+ *     .thenApplyAsync(fn) // run with the TransmittableThreadLocal values of the thread creating stage
+ *     .whenComplete(action);}</pre>
+ * <p>
+ * <b>NOTE:</b> Since Java 9, all the dependent stages are {@link TtlCompletableFuture}
+ * by the hooks {@code newIncompleteFuture()}/{@code defaultExecutor()}, the whole chain transmits.
+ * On Java 8, the dependent stage returned is plain {@link CompletableFuture}, only the async stages created
+ * from {@link TtlCompletableFuture} directly transmit; use the explicit executor wrapped by
+ * {@link com.alibaba.ttl.threadpool.TtlExecutors} for the further async stages.
+ *
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ * @see CompletableFuture
+ * @see com.alibaba.ttl.threadpool.TtlExecutors
+ * @since 2.11.0
+ */
+public class TtlCompletableFuture<T> extends CompletableFuture<T> implements TtlEnhanced {
+    private static final Executor ASYNC_POOL = ForkJoinPool.getCommonPoolParallelism() > 1 ?
+            ForkJoinPool.commonPool() : new ThreadPerTaskExecutor();
+
+    /**
+     * the executor of the last async stage without executor, reused while the captured values are not changed.
+     */
+    private volatile CapturedExecutor capturedExecutor;
+
+    /**
+     * Create a new incomplete {@link TtlCompletableFuture}.
+     */
+    public TtlCompletableFuture() {
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+    // factory methods
+    ////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Same as {@link CompletableFuture#supplyAsync(Supplier)}, the supplier runs with
+     * the {@link TransmittableThreadLocal} values of current thread.
+     */
+    @Nonnull
+    public static <U> TtlCompletableFuture<U> supplyAsync(@Nonnull Supplier<U> supplier) {
+        return supplyAsync(supplier, ASYNC_POOL);
+    }
+
+    /**
+     * Same as {@link CompletableFuture#supplyAsync(Supplier, Executor)}, the supplier runs with
+     * the {@link TransmittableThreadLocal} values of current thread.
+     */
+    @Nonnull
+    public static <U> TtlCompletableFuture<U> supplyAsync(@Nonnull final Supplier<U> supplier, @Nonnull Executor executor) {
+        if (supplier == null || executor == null) throw new NullPointerException();
+
+        final TtlCompletableFuture<U> future = new TtlCompletableFuture<U>();
+        executor.execute(new AsyncTask(TtlRunnable.withCaptured(new Runnable() {
+            @Override
+            public void run() {
+                if (future.isDone()) return;
+                try {
+                    future.complete(supplier.get());
+                } catch (Throwable ex) {
+                    future.completeExceptionally(ex instanceof CompletionException ? ex : new CompletionException(ex));
+                }
+            }
+        }, capture())));
+        return future;
+    }
+
+    /**
+     * Same as {@link CompletableFuture#runAsync(Runnable)}, the runnable runs with
+     * the {@link TransmittableThreadLocal} values of current thread.
+     */
+    @Nonnull
+    public static TtlCompletableFuture<Void> runAsync(@Nonnull Runnable runnable) {
+        return runAsync(runnable, ASYNC_POOL);
+    }
+
+    /**
+     * Same as {@link CompletableFuture#runAsync(Runnable, Executor)}, the runnable runs with
+     * the {@link TransmittableThreadLocal} values of current thread.
+     */
+    @Nonnull
+    public static TtlCompletableFuture<Void> runAsync(@Nonnull final Runnable runnable, @Nonnull Executor executor) {
+        if (runnable == null) throw new NullPointerException();
+        return supplyAsync(new Supplier<Void>() {
+            @Override
+            public Void get() {
+                runnable.run();
+                return null;
+            }
+        }, executor);
+    }
+
+    /**
+     * Same as {@link CompletableFuture#completedFuture(Object)}, the stages created from it transmit.
+     */
+    @Nonnull
+    public static <U> TtlCompletableFuture<U> completedFuture(U value) {
+        final TtlCompletableFuture<U> future = new TtlCompletableFuture<U>();
+        future.complete(value);
+        return future;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+    // Java 9+ hooks of CompletableFuture, not override on Java 8
+    ////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * The dependent stages are also {@link TtlCompletableFuture}. Since Java 9.
+     */
+    public <U> CompletableFuture<U> newIncompleteFuture() {
+        return new TtlCompletableFuture<U>();
+    }
+
+    /**
+     * The executor running the async stage created now, with the {@link TransmittableThreadLocal} values of current thread.
+     * Since Java 9, called by {@link CompletableFuture} when the async stage without executor is created.
+     */
+    public Executor defaultExecutor() {
+        // the task of async stage is ForkJoinTask, captured when the stage is created
+        // and replayed by the ForkJoinPool enhanced by TTL agent, no capture again
+        if (ASYNC_POOL instanceof ForkJoinPool && TtlAgent.isTtlAgentLoaded()) return ASYNC_POOL;
+
+        final Object captured = capture();
+        CapturedExecutor executor = capturedExecutor;
+        if (executor == null || executor.captured != captured) {
+            executor = new CapturedExecutor(ASYNC_POOL, captured);
+            capturedExecutor = executor;
+        }
+        return executor;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+    // async stages without executor, for Java 8
+    ////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public <U> CompletableFuture<U> thenApplyAsync(Function<? super T, ? extends U> fn) {
+        return thenApplyAsync(fn, defaultExecutor());
+    }
+
+    @Override
+    public CompletableFuture<Void> thenAcceptAsync(Consumer<? super T> action) {
+        return thenAcceptAsync(action, defaultExecutor());
+    }
+
+    @Override
+    public CompletableFuture<Void> thenRunAsync(Runnable action) {
+        return thenRunAsync(action, defaultExecutor());
+    }
+
+    @Override
+    public <U, V> CompletableFuture<V> thenCombineAsync(CompletionStage<? extends U> other, BiFunction<? super T, ? super U, ? extends V> fn) {
+        return thenCombineAsync(other, fn, defaultExecutor());
+    }
+
+    @Override
+    public <U> CompletableFuture<Void> thenAcceptBothAsync(CompletionStage<? extends U> other, BiConsumer<? super T, ? super U> action) {
+        return thenAcceptBothAsync(other, action, defaultExecutor());
+    }
+
+    @Override
+    public CompletableFuture<Void> runAfterBothAsync(CompletionStage<?> other, Runnable action) {
+        return runAfterBothAsync(other, action, defaultExecutor());
+    }
+
+    @Override
+    public <U> CompletableFuture<U> applyToEitherAsync(CompletionStage<? extends T> other, Function<? super T, U> fn) {
+        return applyToEitherAsync(other, fn, defaultExecutor());
+    }
+
+    @Override
+    public CompletableFuture<Void> acceptEitherAsync(CompletionStage<? extends T> other, Consumer<? super T> action) {
+        return acceptEitherAsync(other, action, defaultExecutor());
+    }
+
+    @Override
+    public CompletableFuture<Void> runAfterEitherAsync(CompletionStage<?> other, Runnable action) {
+        return runAfterEitherAsync(other, action, defaultExecutor());
+    }
+
+    @Override
+    public <U> CompletableFuture<U> thenComposeAsync(Function<? super T, ? extends CompletionStage<U>> fn) {
+        return thenComposeAsync(fn, defaultExecutor());
+    }
+
+    @Override
+    public CompletableFuture<T> whenCompleteAsync(BiConsumer<? super T, ? super Throwable> action) {
+        return whenCompleteAsync(action, defaultExecutor());
+    }
+
+    @Override
+    public <U> CompletableFuture<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> fn) {
+        return handleAsync(fn, defaultExecutor());
+    }
+
+    /**
+     * The executor runs task with the {@link TransmittableThreadLocal} values captured when the stage is created,
+     * not the ones of the thread completing the previous stage.
+     */
+    private static final class CapturedExecutor implements Executor, TtlEnhanced {
+        private final Executor executor;
+        private final Object captured;
+
+        CapturedExecutor(@Nonnull Executor executor, @Nonnull Object captured) {
+            this.executor = executor;
+            this.captured = captured;
+        }
+
+        @Override
+        public void execute(@Nonnull Runnable command) {
+            if (command instanceof TtlEnhanced) executor.execute(command);
+            else executor.execute(new AsyncTask(TtlRunnable.withCaptured(command, captured)));
+        }
+    }
+
+    /**
+     * The task submitted to the executor. As {@link ForkJoinTask}, run by {@link ForkJoinPool} without the adapter
+     * of {@link Runnable}; as {@link TtlEnhanced}, not captured again by the executors enhanced by TTL agent.
+     */
+    private static final class AsyncTask extends ForkJoinTask<Void> implements Runnable, TtlEnhanced {
+        private static final long serialVersionUID = -2862316427469433232L;
+
+        private final TtlRunnable runnable;
+
+        AsyncTask(@Nonnull TtlRunnable runnable) {
+            this.runnable = runnable;
+        }
+
+        @Override
+        public Void getRawResult() {
+            return null;
+        }
+
+        @Override
+        protected void setRawResult(Void value) {
+        }
+
+        @Override
+        protected boolean exec() {
+            runnable.run();
+            return true;
+        }
+
+        @Override
+        public void run() {
+            runnable.run();
+        }
+    }
+
+    /**
+     * Same as the fallback of {@link CompletableFuture} when the parallelism of common pool is less than 2.
+     */
+    private static final class ThreadPerTaskExecutor implements Executor {
+        @Override
+        public void execute(@Nonnull Runnable command) {
+            new Thread(command).start();
+        }
+    }
+}
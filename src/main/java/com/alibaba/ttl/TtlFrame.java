@@ -0,0 +1,42 @@
+package com.alibaba.ttl;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The scope of the replayed {@link TransmittableThreadLocal} values, created by
+ * {@link TransmittableThreadLocal.Transmitter#replayFrame(Object)}, and closed to restore the values before replay.
+ * <p>
+ * Use with the {@code try-with-resources} statement, no lambda and backup object needed:
+ *
+ * <pre>{@code try (TtlFrame frame = Transmitter.replayFrame(captured)) {
+ *     // run biz logic with the replayed TransmittableThreadLocal values
+ * }}</pre>
+ * <p>
+ * The frame instances are pooled per thread and reused by the next {@link TransmittableThreadLocal.Transmitter#replayFrame(Object)}
+ * after closed, so the frame must be closed exactly once in the thread created it, and not used after closed.
+ * The nested frames should be closed in the reverse order of creation.
+ * <p>
+ * <b>NOTE:</b> {@link AutoCloseable} is Java 7+, this class is loaded only by
+ * {@link TransmittableThreadLocal.Transmitter#replayFrame(Object)}; the other replays of Java 6 never touch it.
+ *
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ * @see TransmittableThreadLocal.Transmitter#replayFrame(Object)
+ * @since 2.11.0
+ */
+public final class TtlFrame implements AutoCloseable {
+    private final TtlBackup backup;
+
+    TtlFrame(@Nonnull TtlBackup backup) {
+        this.backup = backup;
+    }
+
+    /**
+     * Restore the {@link TransmittableThreadLocal} values before replay.
+     *
+     * @throws IllegalStateException if the frame is closed already, or closed in the other thread
+     */
+    @Override
+    public void close() {
+        TransmittableThreadLocal.Transmitter.restoreBackup(backup);
+    }
+}
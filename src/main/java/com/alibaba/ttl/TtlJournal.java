@@ -0,0 +1,138 @@
+package com.alibaba.ttl;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+
+/**
+ * The per-thread journal stack of {@link TransmittableThreadLocal.Transmitter#replay(Object)}, the backup for
+ * {@link TransmittableThreadLocal.Transmitter#restore(Object)}.
+ * <p>
+ * Only the {@link TransmittableThreadLocal}s changed by replay are recorded with their values before replay,
+ * in slot order; the {@link TransmittableThreadLocal} without value before replay is recorded as {@link #ABSENT}.
+ * So restore undoes the journal only, without iterating the registry of thread,
+ * unless the task writes the {@link TransmittableThreadLocal} values(checked by the version of registry).
+ * <p>
+ * The nested replays push their records on the top of the stack, every {@link TtlBackup} owns the range
+ * {@code [base, end)} of records; the stack is truncated when the frames are released,
+ * and the buffer grown too large is not retained.
+ * <p>
+ * <b>NOTE:</b> instance of this class is <b>NOT</b> thread-safe, it's confined to its thread.
+ *
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ * @see TransmittableThreadLocal.Transmitter
+ * @see TtlBackup
+ * @since 2.11.0
+ */
+final class TtlJournal {
+    /**
+     * the marker of the {@link TransmittableThreadLocal} without value before replay.
+     */
+    static final Object ABSENT = new Object();
+
+    private static final int MIN_CAPACITY = 8;
+    private static final int MAX_RETAINED_CAPACITY = 1024;
+    private static final TransmittableThreadLocal<?>[] EMPTY_TTLS = new TransmittableThreadLocal<?>[0];
+    private static final Object[] EMPTY_VALUES = new Object[0];
+
+    TransmittableThreadLocal<?>[] ttls = EMPTY_TTLS;
+    Object[] values = EMPTY_VALUES;
+    private boolean[] pendingCopy;
+    private long[] longValues;
+    /**
+     * the top of stack.
+     */
+    int size = 0;
+
+    /**
+     * Ensure room for {@code count} more records, the records in stack are kept.
+     */
+    void ensureCapacity(int count) {
+        final int required = size + count;
+        if (required <= ttls.length) return;
+
+        final int capacity = Math.max(required, Math.max(ttls.length * 2, MIN_CAPACITY));
+        ttls = Arrays.copyOf(ttls, capacity);
+        values = Arrays.copyOf(values, capacity);
+        if (pendingCopy != null) pendingCopy = Arrays.copyOf(pendingCopy, capacity);
+        if (longValues != null) longValues = Arrays.copyOf(longValues, capacity);
+    }
+
+    /**
+     * Pop the records above {@code newSize}, release the references of {@link TransmittableThreadLocal}s and values.
+     */
+    void truncate(int newSize) {
+        if (newSize >= size) return;
+
+        if (newSize == 0 && ttls.length > MAX_RETAINED_CAPACITY) {
+            ttls = EMPTY_TTLS;
+            values = EMPTY_VALUES;
+            pendingCopy = null;
+            longValues = null;
+        } else {
+            Arrays.fill(ttls, newSize, size, null);
+            Arrays.fill(values, newSize, size, null);
+            if (pendingCopy != null) Arrays.fill(pendingCopy, newSize, size, false);
+        }
+        size = newSize;
+    }
+
+    void add(@Nonnull TransmittableThreadLocal<?> ttl, Object value, boolean pendingCopy) {
+        if (pendingCopy) {
+            if (this.pendingCopy == null) this.pendingCopy = new boolean[ttls.length];
+            this.pendingCopy[size] = true;
+        }
+        ttls[size] = ttl;
+        values[size++] = value;
+    }
+
+    void addLong(@Nonnull TransmittableThreadLocal<?> ttl, long value) {
+        if (longValues == null) longValues = new long[ttls.length];
+        longValues[size] = value;
+        ttls[size++] = ttl;
+    }
+
+    void addAbsent(@Nonnull TransmittableThreadLocal<?> ttl) {
+        ttls[size] = ttl;
+        values[size++] = ABSENT;
+    }
+
+    /**
+     * Push the records of the replay plan, the baseline values in plan are never pending copy.
+     */
+    void addAll(@Nonnull TtlReplayPlan plan) {
+        final int count = plan.recordCount;
+        ensureCapacity(count);
+        System.arraycopy(plan.recordTtls, 0, ttls, size, count);
+        System.arraycopy(plan.recordValues, 0, values, size, count);
+        if (plan.recordLongValues != null) {
+            if (longValues == null) longValues = new long[ttls.length];
+            System.arraycopy(plan.recordLongValues, 0, longValues, size, count);
+        }
+        size += count;
+    }
+
+    boolean isPendingCopy(int index) {
+        return pendingCopy != null && pendingCopy[index];
+    }
+
+    long longValue(int index) {
+        return longValues == null ? 0 : longValues[index];
+    }
+
+    /**
+     * Binary search by slot in the records {@code [from, to)}, return whether the {@link TransmittableThreadLocal} is recorded.
+     */
+    boolean contains(@Nonnull TransmittableThreadLocal<?> ttl, int from, int to) {
+        final int slot = ttl.slot;
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int midSlot = ttls[mid].slot;
+            if (midSlot < slot) low = mid + 1;
+            else if (midSlot > slot) high = mid - 1;
+            else return ttls[mid] == ttl;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,85 @@
+package com.alibaba.ttl;
+
+import javax.annotation.Nullable;
+
+/**
+ * The internal {@link TransmittableThreadLocal} of the primitive variants
+ * {@link TransmittableLongLocal} and {@link TransmittableIntLocal}.
+ * <p>
+ * The value in a thread is a mutable cell, reused by set/remove and replay/restore of {@link TransmittableThreadLocal.Transmitter},
+ * and the captured values are kept in the long array of {@link TtlSnapshot}, so the long value is never boxed.
+ * <p>
+ * The cell is registered to the thread only when its value is set.
+ *
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ * @see TransmittableLongLocal
+ * @see TransmittableIntLocal
+ * @since 2.11.0
+ */
+final class TtlLongLocal extends TransmittableThreadLocal<TtlLongLocal.Cell> {
+    static final class Cell {
+        long value;
+        /**
+         * whether the value is set, the cell is kept after remove so as to be reused by the next set.
+         */
+        boolean present;
+
+        Cell(long value, boolean present) {
+            this.value = value;
+            this.present = present;
+        }
+
+        @Override
+        public String toString() {
+            return present ? String.valueOf(value) : "<removed>";
+        }
+    }
+
+    boolean isPresent() {
+        final Cell cell = get();
+        return cell != null && cell.present;
+    }
+
+    long getLong(long defaultValue) {
+        final Cell cell = get();
+        return cell != null && cell.present ? cell.value : defaultValue;
+    }
+
+    void setLong(long value) {
+        final Cell cell = get();
+        if (cell == null) {
+            set(new Cell(value, true));
+        } else {
+            cell.value = value;
+            cell.present = true;
+            // register and mark modified, ThreadLocal entry is reused
+            set(cell);
+        }
+    }
+
+    void removeLong() {
+        final Cell cell = get();
+        if (cell != null && cell.present) {
+            cell.present = false;
+            removeValue();
+        }
+    }
+
+    /**
+     * Keep the cell for reuse, only mark the value removed.
+     */
+    @Override
+    void superRemove() {
+        final Cell cell = get();
+        if (cell != null) cell.present = false;
+    }
+
+    /**
+     * The cell is confined to its thread, the child thread has its own.
+     */
+    @Override
+    protected Cell childValue(@Nullable Cell parentValue) {
+        if (parentValue == null) return null;
+        return new Cell(parentValue.value, parentValue.present);
+    }
+}
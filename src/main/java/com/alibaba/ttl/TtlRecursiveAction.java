@@ -42,12 +42,12 @@ public abstract class TtlRecursiveAction extends ForkJoinTask<Void> implements T
      * Implements execution conventions for RecursiveActions.
      */
     protected final boolean exec() {
-        Object backup = replay(captured);
+        final TtlBackup backup = replayBackup(captured);
         try {
             compute();
             return true;
         } finally {
-            restore(backup);
+            restoreBackup(backup);
         }
     }
 }
@@ -50,12 +50,12 @@ public abstract class TtlRecursiveTask<V> extends ForkJoinTask<V> implements Ttl
      * Implements execution conventions for RecursiveTask.
      */
     protected final boolean exec() {
-        Object backup = replay(captured);
+        final TtlBackup backup = replayBackup(captured);
         try {
             result = compute();
             return true;
         } finally {
-            restore(backup);
+            restoreBackup(backup);
         }
     }
 
@@ -0,0 +1,165 @@
+package com.alibaba.ttl;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import static com.alibaba.ttl.TransmittableThreadLocal.Transmitter.*;
+
+/**
+ * {@link TtlRecyclableRunnable} decorate {@link Runnable} like {@link TtlRunnable}, but the wrapper is reusable:
+ * it's bound to the captured {@link TransmittableThreadLocal} values by {@link #rebind()}/{@link #rebind(Object)}
+ * before every submission, instead of creating new wrapper. So the object-pooled task designs(e.g. ring buffer of the
+ * preallocated tasks) transmit {@link TransmittableThreadLocal} without allocation.
+ * <p>
+ * The wrapper is created unbound by factory methods {@link #get}, and must be bound before run:
+ *
+ * <pre>{@code // preallocated with the pooled task
+ * TtlRecyclableRunnable wrapper = TtlRecyclableRunnable.get(pooledTask, true);
+ * ...
+ * // in the submitting thread, for every submission
+ * executor.execute(wrapper.rebind());
+ * }</pre>
+ * <p>
+ * If {@code releaseTtlValueReferenceAfterRun} is {@code true}, the captured reference is released after run,
+ * the wrapper should be rebound before the next run; otherwise the captured reference is kept until
+ * {@link #reset()} or the next rebind, and the wrapper can be run repeatedly with the same captured values.
+ * <p>
+ * <b>NOTE:</b> the wrapper is bound and run by one submission at a time, rebind a wrapper which is waiting to run
+ * changes the {@link TransmittableThreadLocal} values it runs with.
+ *
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ * @see TtlRunnable
+ * @since 2.11.0
+ */
+public final class TtlRecyclableRunnable implements Runnable, TtlEnhanced {
+    private static final AtomicReferenceFieldUpdater<TtlRecyclableRunnable, Object> capturedUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(TtlRecyclableRunnable.class, Object.class, "captured");
+
+    /**
+     * {@code null} if unbound.
+     */
+    private volatile Object captured;
+    private final Runnable runnable;
+    private final boolean releaseTtlValueReferenceAfterRun;
+
+    private TtlRecyclableRunnable(@Nonnull Runnable runnable, boolean releaseTtlValueReferenceAfterRun) {
+        this.runnable = runnable;
+        this.releaseTtlValueReferenceAfterRun = releaseTtlValueReferenceAfterRun;
+    }
+
+    /**
+     * Bind to the {@link TransmittableThreadLocal} values captured from current thread.
+     *
+     * @return this wrapper
+     */
+    @Nonnull
+    public TtlRecyclableRunnable rebind() {
+        return rebind(capture());
+    }
+
+    /**
+     * Bind to the captured {@link TransmittableThreadLocal} values, e.g. one capture shared by a batch of tasks.
+     *
+     * @param captured captured {@link TransmittableThreadLocal} values from {@link TransmittableThreadLocal.Transmitter#capture()}
+     * @return this wrapper
+     */
+    @Nonnull
+    public TtlRecyclableRunnable rebind(@Nonnull Object captured) {
+        if (captured == null) throw new NullPointerException("captured is null");
+        this.captured = captured;
+        return this;
+    }
+
+    /**
+     * Release the captured reference, so the pooled wrapper does not keep the {@link TransmittableThreadLocal} values alive.
+     */
+    public void reset() {
+        captured = null;
+    }
+
+    /**
+     * Whether the wrapper is bound to the captured {@link TransmittableThreadLocal} values.
+     */
+    public boolean isBound() {
+        return captured != null;
+    }
+
+    /**
+     * wrap method {@link Runnable#run()}.
+     *
+     * @throws IllegalStateException if the wrapper is not bound, or the captured reference is released after run
+     */
+    @Override
+    public void run() {
+        Object captured = this.captured;
+        if (captured == null || releaseTtlValueReferenceAfterRun && !capturedUpdater.compareAndSet(this, captured, null)) {
+            throw new IllegalStateException("TTL value reference is not bound or released after run!");
+        }
+
+        final TtlBackup backup = replayBackup(captured);
+        try {
+            runnable.run();
+        } finally {
+            restoreBackup(backup);
+        }
+    }
+
+    /**
+     * return original/unwrapped {@link Runnable}.
+     */
+    @Nonnull
+    public Runnable getRunnable() {
+        return runnable;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        TtlRecyclableRunnable that = (TtlRecyclableRunnable) o;
+
+        return runnable.equals(that.runnable);
+    }
+
+    @Override
+    public int hashCode() {
+        return runnable.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getName() + " - " + runnable.toString();
+    }
+
+    /**
+     * Factory method, wrap input {@link Runnable} to the unbound {@link TtlRecyclableRunnable}.
+     *
+     * @param runnable input {@link Runnable}. if input is {@code null}, return {@code null}.
+     * @return Wrapped {@link Runnable}
+     * @throws IllegalStateException when input is {@link TtlEnhanced} already.
+     */
+    @Nullable
+    public static TtlRecyclableRunnable get(@Nullable Runnable runnable) {
+        return get(runnable, false);
+    }
+
+    /**
+     * Factory method, wrap input {@link Runnable} to the unbound {@link TtlRecyclableRunnable}.
+     *
+     * @param runnable                         input {@link Runnable}. if input is {@code null}, return {@code null}.
+     * @param releaseTtlValueReferenceAfterRun release TTL value reference after run, avoid memory leak even if the pooled wrapper is referred.
+     * @return Wrapped {@link Runnable}
+     * @throws IllegalStateException when input is {@link TtlEnhanced} already.
+     */
+    @Nullable
+    public static TtlRecyclableRunnable get(@Nullable Runnable runnable, boolean releaseTtlValueReferenceAfterRun) {
+        if (null == runnable) return null;
+
+        if (runnable instanceof TtlEnhanced) {
+            throw new IllegalStateException("Already TtlEnhanced!");
+        }
+        return new TtlRecyclableRunnable(runnable, releaseTtlValueReferenceAfterRun);
+    }
+}
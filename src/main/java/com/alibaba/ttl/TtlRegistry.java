@@ -0,0 +1,398 @@
+package com.alibaba.ttl;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The per-thread registry of {@link TransmittableThreadLocal} instances which hold value in the thread.
+ * <p>
+ * Every {@link TransmittableThreadLocal} is given a stable integer slot at construction,
+ * the registry is a bit set of the registered slots plus an array of weak references indexed by slot,
+ * so membership tracking is a bit/array operation without hashing and allocation.
+ * <p>
+ * The slot of a garbage collected {@link TransmittableThreadLocal} is reclaimed and reused by new instances;
+ * the stale weak reference left in the registry of a thread is expunged when met in iteration,
+ * or overwritten when the slot is registered again.
+ * <p>
+ * The child thread shares the arrays of the registry of its parent thread, both copy the arrays before
+ * their first write after sharing(copy-on-write); so the inheritance of the registry is O(1), independent of
+ * the number of {@link TransmittableThreadLocal}s. see {@link #copy()}.
+ * <p>
+ * The inheritance of the {@link TransmittableThreadLocal} values is still O(n) per new thread: the JDK copies
+ * the whole inheritable map of the parent thread, and calls {@link TransmittableThreadLocal#childValue(Object)}
+ * of every {@link TransmittableThreadLocal} in it.
+ * <p>
+ * <b>NOTE:</b> instance of this class is <b>NOT</b> thread-safe, it's confined to its thread.
+ *
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ * @see TransmittableThreadLocal
+ * @since 2.11.0
+ */
+final class TtlRegistry {
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+    private static final int MIN_REFS_CAPACITY = 8;
+    private static final int MIN_FRAMES_CAPACITY = 4;
+    static final int MAX_FRAMES_DEPTH = 64;
+
+    private static final long[] EMPTY_WORDS = new long[0];
+    private static final SlotRef[] EMPTY_REFS = new SlotRef[0];
+
+    private long[] words = EMPTY_WORDS;
+    private SlotRef[] refs = EMPTY_REFS;
+    /**
+     * bit set of the slots whose value is not copied yet, see {@link TransmittableThreadLocal#TransmittableThreadLocal(boolean)}.
+     */
+    private long[] pendingCopyWords = EMPTY_WORDS;
+    /**
+     * bit set of the registered slots whose {@link TransmittableThreadLocal} overrides the callbacks
+     * {@link TransmittableThreadLocal#beforeExecute()}/{@link TransmittableThreadLocal#afterExecute()}, usually empty.
+     */
+    private long[] callbackWords = EMPTY_WORDS;
+    /**
+     * bit set of the registered slots whose {@link TransmittableThreadLocal} is not inheritable
+     * by its {@link TransmittableThreadLocal.TransmissionPolicy}, usually empty.
+     */
+    private long[] nonInheritableWords = EMPTY_WORDS;
+    /**
+     * count of registered slots, include the stale ones not expunged yet.
+     */
+    private int size = 0;
+    private int callbackCount = 0;
+    private int nonInheritableCount = 0;
+    /**
+     * whether the arrays are shared with the registry of parent or child thread, copied before write.
+     */
+    private boolean shared = false;
+
+    /**
+     * bumped on every write of the {@link TransmittableThreadLocal} values in the thread.
+     */
+    private int version = 0;
+    /**
+     * the last captured snapshot, valid until the next write, see {@link #modified()}.
+     */
+    @Nullable
+    private TtlSnapshot lastCaptured;
+
+    /**
+     * the pooled frames of replay backup, the ones below {@link #frameDepth} are in use.
+     */
+    private TtlBackup[] frames;
+    private int frameDepth = 0;
+    /**
+     * the journal stack shared by the frames.
+     */
+    private TtlJournal journal;
+
+    boolean contains(@Nonnull TransmittableThreadLocal<?> ttl) {
+        final int slot = ttl.slot;
+        return slot < refs.length && refs[slot] == ttl.slotRef;
+    }
+
+    void add(@Nonnull TransmittableThreadLocal<?> ttl) {
+        final int slot = ttl.slot;
+        if (slot < refs.length) {
+            final SlotRef ref = refs[slot];
+            if (ref == ttl.slotRef) return;
+            // overwrite the stale reference of the reclaimed slot
+            if (ref != null) clear(slot);
+            unshare();
+        } else {
+            ensureCapacity(slot);
+        }
+
+        refs[slot] = ttl.slotRef;
+        words[slot >>> ADDRESS_BITS_PER_WORD] |= 1L << slot;
+        size++;
+        if (ttl.callbackOverridden) {
+            callbackWords[slot >>> ADDRESS_BITS_PER_WORD] |= 1L << slot;
+            callbackCount++;
+        }
+        if (!ttl.policy.inheritable) {
+            nonInheritableWords[slot >>> ADDRESS_BITS_PER_WORD] |= 1L << slot;
+            nonInheritableCount++;
+        }
+        modified();
+    }
+
+    void remove(@Nonnull TransmittableThreadLocal<?> ttl) {
+        final int slot = ttl.slot;
+        if (slot < refs.length && refs[slot] == ttl.slotRef) {
+            clear(slot);
+            modified();
+        }
+    }
+
+    boolean isPendingCopy(int slot) {
+        final int wordIndex = slot >>> ADDRESS_BITS_PER_WORD;
+        return wordIndex < pendingCopyWords.length && (pendingCopyWords[wordIndex] & (1L << slot)) != 0;
+    }
+
+    /**
+     * Set the pending copy state of the registered slot.
+     */
+    void setPendingCopy(int slot, boolean pendingCopy) {
+        if (isPendingCopy(slot) == pendingCopy) return;
+
+        unshare();
+        final int wordIndex = slot >>> ADDRESS_BITS_PER_WORD;
+        if (pendingCopy) {
+            if (wordIndex >= pendingCopyWords.length) pendingCopyWords = Arrays.copyOf(pendingCopyWords, words.length);
+            pendingCopyWords[wordIndex] |= 1L << slot;
+        } else if (wordIndex < pendingCopyWords.length) {
+            pendingCopyWords[wordIndex] &= ~(1L << slot);
+        }
+    }
+
+    /**
+     * Mark the {@link TransmittableThreadLocal} values of the thread modified,
+     * bump the version and drop the cached snapshot.
+     */
+    void modified() {
+        version++;
+        lastCaptured = null;
+    }
+
+    int version() {
+        return version;
+    }
+
+    /**
+     * The snapshot captured since the last write, or {@code null}.
+     */
+    @Nullable
+    TtlSnapshot lastCaptured() {
+        return lastCaptured;
+    }
+
+    void lastCaptured(@Nullable TtlSnapshot snapshot) {
+        lastCaptured = snapshot;
+    }
+
+    /**
+     * count of registered slots, an upper bound of the live registered {@link TransmittableThreadLocal}s.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Return the first live registered {@link TransmittableThreadLocal} whose slot is not less than {@code fromSlot},
+     * or {@code null} if none. The stale slots met are expunged.
+     * <p>
+     * Iteration idiom, the current {@link TransmittableThreadLocal} can be removed safely during iteration:
+     * <pre>{@code for (TransmittableThreadLocal<?> ttl = registry.nextFrom(0); ttl != null; ttl = registry.nextFrom(ttl.slot + 1)) {
+     *     ...
+     * }}</pre>
+     */
+    @Nullable
+    TransmittableThreadLocal<?> nextFrom(int fromSlot) {
+        return nextFrom(words, fromSlot);
+    }
+
+    /**
+     * Whether some registered {@link TransmittableThreadLocal} overrides the callbacks.
+     */
+    boolean hasCallback() {
+        return callbackCount > 0;
+    }
+
+    /**
+     * Same as {@link #nextFrom(int)}, but only the {@link TransmittableThreadLocal}s overriding the callbacks.
+     */
+    @Nullable
+    TransmittableThreadLocal<?> nextCallbackFrom(int fromSlot) {
+        return nextFrom(callbackWords, fromSlot);
+    }
+
+    @Nullable
+    private TransmittableThreadLocal<?> nextFrom(@Nonnull long[] bits, int fromSlot) {
+        int wordIndex = fromSlot >>> ADDRESS_BITS_PER_WORD;
+        if (wordIndex >= bits.length) return null;
+
+        long word = bits[wordIndex] & (-1L << fromSlot);
+        while (true) {
+            while (word != 0) {
+                final int slot = (wordIndex << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+                final TransmittableThreadLocal<?> ttl = refs[slot].get();
+                if (ttl != null) return ttl;
+
+                clear(slot);
+                word &= word - 1;
+            }
+            if (++wordIndex == bits.length) return null;
+            word = bits[wordIndex];
+        }
+    }
+
+    /**
+     * Copy for the child thread, the cached snapshot is not copied.
+     * <p>
+     * The arrays are shared with the copy until the first write of either one, so the copy is O(1);
+     * unless some {@link TransmittableThreadLocal} not inheritable by its {@link TransmittableThreadLocal.TransmissionPolicy}
+     * is registered, which is not copied, then the arrays are copied and the stale slots are expunged.
+     * <p>
+     * Only the registry is O(1), the values are copied by the JDK with the inheritable map of the parent thread,
+     * O(n) in the number of {@link TransmittableThreadLocal}s with value; see the class doc.
+     */
+    @Nonnull
+    TtlRegistry copy() {
+        final TtlRegistry copy = new TtlRegistry();
+        if (size == 0) return copy;
+
+        copy.words = words;
+        copy.refs = refs;
+        copy.pendingCopyWords = pendingCopyWords;
+        copy.callbackWords = callbackWords;
+        copy.nonInheritableWords = nonInheritableWords;
+        copy.size = size;
+        copy.callbackCount = callbackCount;
+        copy.nonInheritableCount = nonInheritableCount;
+        copy.shared = true;
+        shared = true;
+
+        if (nonInheritableCount > 0) {
+            for (TransmittableThreadLocal<?> ttl = copy.nextFrom(0); ttl != null; ttl = copy.nextFrom(ttl.slot + 1)) {
+                if (!ttl.policy.inheritable) copy.clear(ttl.slot);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Copy the arrays shared with the registry of parent or child thread before write.
+     */
+    private void unshare() {
+        if (!shared) return;
+
+        words = words.clone();
+        refs = refs.clone();
+        if (pendingCopyWords.length > 0) pendingCopyWords = pendingCopyWords.clone();
+        callbackWords = callbackWords.clone();
+        nonInheritableWords = nonInheritableWords.clone();
+        shared = false;
+    }
+
+    private void clear(int slot) {
+        unshare();
+        final int wordIndex = slot >>> ADDRESS_BITS_PER_WORD;
+        final long mask = 1L << slot;
+        refs[slot] = null;
+        words[wordIndex] &= ~mask;
+        size--;
+        setPendingCopy(slot, false);
+        if ((callbackWords[wordIndex] & mask) != 0) {
+            callbackWords[wordIndex] &= ~mask;
+            callbackCount--;
+        }
+        if ((nonInheritableWords[wordIndex] & mask) != 0) {
+            nonInheritableWords[wordIndex] &= ~mask;
+            nonInheritableCount--;
+        }
+    }
+
+    private void ensureCapacity(int slot) {
+        unshare();
+        final int capacity = Math.max(slot + 1, Math.max(refs.length * 2, MIN_REFS_CAPACITY));
+        refs = Arrays.copyOf(refs, capacity);
+
+        // words always cover all slots of refs
+        final int wordsLength = ((capacity - 1) >>> ADDRESS_BITS_PER_WORD) + 1;
+        if (wordsLength > words.length) {
+            words = Arrays.copyOf(words, wordsLength);
+            callbackWords = Arrays.copyOf(callbackWords, wordsLength);
+            nonInheritableWords = Arrays.copyOf(nonInheritableWords, wordsLength);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+    // replay frames
+    ////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Get a frame for the backup of replay from the pool, the pool grows with the nesting depth.
+     * <p>
+     * The depth of pooled frames is capped, the deeper frame is not pooled and records into its own journal,
+     * so neither the pool nor the journal stack grows unbounded.
+     */
+    @Nonnull
+    TtlBackup pushFrame() {
+        if (frameDepth == MAX_FRAMES_DEPTH) return new TtlBackup(this, new TtlJournal(), false);
+        if (frames == null) frames = new TtlBackup[MIN_FRAMES_CAPACITY];
+        else if (frameDepth == frames.length) frames = Arrays.copyOf(frames, frameDepth * 2);
+
+        TtlBackup frame = frames[frameDepth];
+        if (frame == null) frame = frames[frameDepth] = new TtlBackup(this, journal(), true);
+        frameDepth++;
+        return frame;
+    }
+
+    /**
+     * Release the restored pooled frame to the pool, and pop its records from the journal stack.
+     * <p>
+     * The frame restored out of order is released when the frames above it are restored.
+     */
+    void popFrame(@Nonnull TtlBackup frame) {
+        frame.captured = null;
+        frame.previousCaptured = null;
+        frame.plan = null;
+        while (frameDepth > 0 && frames[frameDepth - 1].captured == null) {
+            frameDepth--;
+        }
+        if (journal != null) journal.truncate(frameDepth == 0 ? 0 : frames[frameDepth - 1].end);
+    }
+
+    int frameDepth() {
+        return frameDepth;
+    }
+
+    @Nonnull
+    TtlJournal journal() {
+        if (journal == null) journal = new TtlJournal();
+        return journal;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+    // slot allocation
+    ////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * The weak reference to a {@link TransmittableThreadLocal} with its slot.
+     * <p>
+     * One instance per {@link TransmittableThreadLocal}, shared by the registries of all threads,
+     * so registering a {@link TransmittableThreadLocal} to a thread allocates nothing.
+     */
+    static final class SlotRef extends WeakReference<TransmittableThreadLocal<?>> {
+        final int slot;
+
+        private SlotRef(TransmittableThreadLocal<?> referent, int slot) {
+            super(referent, reclaimedSlotRefs);
+            this.slot = slot;
+        }
+    }
+
+    private static final ReferenceQueue<TransmittableThreadLocal<?>> reclaimedSlotRefs = new ReferenceQueue<TransmittableThreadLocal<?>>();
+    private static final BitSet freeSlots = new BitSet();
+    private static int slotCount = 0;
+
+    /**
+     * Allocate a slot for the new {@link TransmittableThreadLocal} instance,
+     * the smallest free slot is preferred so as to keep the registries compact.
+     */
+    @Nonnull
+    static synchronized SlotRef newSlotRef(@Nonnull TransmittableThreadLocal<?> ttl) {
+        for (SlotRef ref = (SlotRef) reclaimedSlotRefs.poll(); ref != null; ref = (SlotRef) reclaimedSlotRefs.poll()) {
+            freeSlots.set(ref.slot);
+        }
+
+        int slot = freeSlots.nextSetBit(0);
+        if (slot >= 0) freeSlots.clear(slot);
+        else slot = slotCount++;
+
+        return new SlotRef(ttl, slot);
+    }
+}
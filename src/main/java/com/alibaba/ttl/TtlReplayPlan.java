@@ -0,0 +1,109 @@
+package com.alibaba.ttl;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * The replay of the captured {@link TransmittableThreadLocal} values into the thread holding exactly the baseline
+ * snapshot, computed once and reused by the runs of periodic task; see {@link TtlRunnable#getForPeriodic(Runnable)}.
+ * <p>
+ * Every run of the periodic task replays the same captured values, and the pooled thread runs it usually holds the same
+ * values between runs; so the merge walk of {@link TransmittableThreadLocal.Transmitter#replay(Object)} gives
+ * the same result every run. The plan keeps the result of merge walk of the baseline and the captured snapshots:
+ * <ul>
+ * <li>the records of journal, the baseline values of changed {@link TransmittableThreadLocal}s in slot order</li>
+ * <li>the {@link TransmittableThreadLocal}s only in baseline, to remove</li>
+ * <li>the indexes of the captured {@link TransmittableThreadLocal}s differing from baseline, to set</li>
+ * </ul>
+ * The baseline holding the values not copied yet is not planned, the pending state of thread may differ from
+ * the snapshot, see {@link TransmittableThreadLocal#TransmittableThreadLocal(boolean)}.
+ * <p>
+ * The plan is immutable.
+ *
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ * @see TransmittableThreadLocal.Transmitter
+ * @see TtlJournal
+ * @since 2.11.0
+ */
+final class TtlReplayPlan {
+    final TtlSnapshot baseline;
+    final TtlSnapshot captured;
+
+    final TransmittableThreadLocal<?>[] recordTtls;
+    /**
+     * {@link TtlJournal#ABSENT} for the captured {@link TransmittableThreadLocal} not in baseline.
+     */
+    final Object[] recordValues;
+    @Nullable
+    final long[] recordLongValues;
+    final int recordCount;
+
+    final TransmittableThreadLocal<?>[] removes;
+    final int removeCount;
+    final int[] sets;
+    final int setCount;
+
+    private TtlReplayPlan(@Nonnull TtlSnapshot baseline, @Nonnull TtlSnapshot captured) {
+        this.baseline = baseline;
+        this.captured = captured;
+
+        final TransmittableThreadLocal<?>[] baselineTtls = baseline.ttls;
+        final TransmittableThreadLocal<?>[] capturedTtls = captured.ttls;
+        recordTtls = new TransmittableThreadLocal<?>[baselineTtls.length + capturedTtls.length];
+        recordValues = new Object[recordTtls.length];
+        long[] longValues = null;
+        removes = new TransmittableThreadLocal<?>[baselineTtls.length];
+        sets = new int[capturedTtls.length];
+
+        int records = 0, removeSize = 0, setSize = 0;
+        int i = 0, j = 0;
+        while (j < baselineTtls.length || i < capturedTtls.length) {
+            final TransmittableThreadLocal<?> baselineTtl = j < baselineTtls.length ? baselineTtls[j] : null;
+            final TransmittableThreadLocal<?> capturedTtl = i < capturedTtls.length ? capturedTtls[i] : null;
+            if (capturedTtl == null || baselineTtl != null && baselineTtl.slot < capturedTtl.slot) {
+                removes[removeSize++] = baselineTtl;
+            } else if (baselineTtl == capturedTtl) {
+                if (holdsCaptured(baseline, j, captured, i)) {
+                    i++;
+                    j++;
+                    continue;
+                }
+                sets[setSize++] = i++;
+            } else {
+                recordTtls[records] = capturedTtl;
+                recordValues[records++] = TtlJournal.ABSENT;
+                sets[setSize++] = i++;
+                continue;
+            }
+
+            // record the baseline value
+            recordTtls[records] = baselineTtl;
+            if (baselineTtl.primitive) {
+                if (longValues == null) longValues = new long[recordTtls.length];
+                longValues[records] = baseline.longValue(j);
+            }
+            recordValues[records++] = baseline.values[j++];
+        }
+        recordLongValues = longValues;
+        recordCount = records;
+        removeCount = removeSize;
+        setCount = setSize;
+    }
+
+    /**
+     * Plan the replay of captured into the thread holding exactly the baseline.
+     *
+     * @return {@code null} if the baseline holds the values not copied yet, can not be planned
+     */
+    @Nullable
+    static TtlReplayPlan of(@Nonnull TtlSnapshot baseline, @Nonnull TtlSnapshot captured) {
+        if (baseline.pendingCopy != null) return null;
+        return new TtlReplayPlan(baseline, captured);
+    }
+
+    private static boolean holdsCaptured(@Nonnull TtlSnapshot baseline, int baselineIndex,
+                                         @Nonnull TtlSnapshot captured, int capturedIndex) {
+        if (baseline.ttls[baselineIndex].primitive) return baseline.longValue(baselineIndex) == captured.longValue(capturedIndex);
+        return baseline.values[baselineIndex] == captured.values[capturedIndex] && !captured.isPendingCopy(capturedIndex);
+    }
+}
@@ -6,7 +6,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import static com.alibaba.ttl.TransmittableThreadLocal.Transmitter.*;
 
@@ -26,12 +26,23 @@ import static com.alibaba.ttl.TransmittableThreadLocal.Transmitter.*;
  * @since 0.9.0
  */
 public final class TtlRunnable implements Runnable, TtlEnhanced {
-    private final AtomicReference<Object> capturedRef;
+    private static final AtomicReferenceFieldUpdater<TtlRunnable, Object> capturedUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(TtlRunnable.class, Object.class, "captured");
+
+    /**
+     * the captured held directly instead of a {@code AtomicReference}, one object per task;
+     * cleared by {@link #capturedUpdater} when release TTL value reference after run.
+     */
+    private volatile Object captured;
     private final Runnable runnable;
     private final boolean releaseTtlValueReferenceAfterRun;
 
     private TtlRunnable(@Nonnull Runnable runnable, boolean releaseTtlValueReferenceAfterRun) {
-        this.capturedRef = new AtomicReference<Object>(capture());
+        this(runnable, capture(), releaseTtlValueReferenceAfterRun);
+    }
+
+    private TtlRunnable(@Nonnull Runnable runnable, @Nonnull Object captured, boolean releaseTtlValueReferenceAfterRun) {
+        this.captured = captured;
         this.runnable = runnable;
         this.releaseTtlValueReferenceAfterRun = releaseTtlValueReferenceAfterRun;
     }
@@ -41,16 +52,16 @@ public final class TtlRunnable implements Runnable, TtlEnhanced {
      */
     @Override
     public void run() {
-        Object captured = capturedRef.get();
-        if (captured == null || releaseTtlValueReferenceAfterRun && !capturedRef.compareAndSet(captured, null)) {
+        Object captured = this.captured;
+        if (captured == null || releaseTtlValueReferenceAfterRun && !capturedUpdater.compareAndSet(this, captured, null)) {
             throw new IllegalStateException("TTL value reference is released after run!");
         }
 
-        Object backup = replay(captured);
+        final TtlBackup backup = replayBackup(captured);
         try {
             runnable.run();
         } finally {
-            restore(backup);
+            restoreBackup(backup);
         }
     }
 
@@ -91,7 +102,7 @@ public final class TtlRunnable implements Runnable, TtlEnhanced {
      */
     @Nullable
     public static TtlRunnable get(@Nullable Runnable runnable) {
-        return get(runnable, false, false);
+        return get(runnable, false);
     }
 
     /**
@@ -104,7 +115,10 @@ public final class TtlRunnable implements Runnable, TtlEnhanced {
      */
     @Nullable
     public static TtlRunnable get(@Nullable Runnable runnable, boolean releaseTtlValueReferenceAfterRun) {
-        return get(runnable, releaseTtlValueReferenceAfterRun, false);
+        if (null == runnable) return null;
+
+        if (runnable instanceof TtlEnhanced) throw new IllegalStateException("Already TtlRunnable!");
+        return new TtlRunnable(runnable, releaseTtlValueReferenceAfterRun);
     }
 
     /**
@@ -112,22 +126,124 @@ public final class TtlRunnable implements Runnable, TtlEnhanced {
      *
      * @param runnable                         input {@link Runnable}. if input is {@code null}, return {@code null}.
      * @param releaseTtlValueReferenceAfterRun release TTL value reference after run, avoid memory leak even if {@link TtlRunnable} is referred.
-     * @param idempotent                       is idempotent mode or not. if {@code true}, just return input {@link Runnable} when it's {@link TtlRunnable},
+     * @param idempotent                       is idempotent mode or not. if {@code true}, just return input {@link Runnable} when it's {@link TtlEnhanced},
      *                                         otherwise throw {@link IllegalStateException}.
      *                                         <B><I>Caution</I></B>: {@code true} will cover up bugs! <b>DO NOT</b> set, only when you know why.
-     * @return Wrapped {@link Runnable}
-     * @throws IllegalStateException when input is {@link TtlRunnable} already and not idempotent.
+     * @return Wrapped {@link Runnable}, or the input {@link Runnable} if it's {@link TtlEnhanced} already and idempotent,
+     * e.g. the {@link TtlRecyclableRunnable} which is not a {@link TtlRunnable}
+     * @throws IllegalStateException when input is {@link TtlEnhanced} already and not idempotent.
      */
     @Nullable
-    public static TtlRunnable get(@Nullable Runnable runnable, boolean releaseTtlValueReferenceAfterRun, boolean idempotent) {
-        if (null == runnable) return null;
+    public static Runnable get(@Nullable Runnable runnable, boolean releaseTtlValueReferenceAfterRun, boolean idempotent) {
+        // avoid redundant decoration, and ensure idempotency
+        if (idempotent && runnable instanceof TtlEnhanced) return runnable;
+        return get(runnable, releaseTtlValueReferenceAfterRun);
+    }
+
+    /**
+     * Factory method, wrap input {@link Runnable} for the new thread which runs only the task and then terminates,
+     * e.g. submitted to the thread-per-task executor or the virtual thread executor.
+     * <p>
+     * The captured {@link TransmittableThreadLocal} values are installed as the context of the new thread directly,
+     * without backup and restore. <b>DO NOT</b> run the returned task by the pooled thread, the thread keeps the values after run.
+     *
+     * @param runnable input {@link Runnable}. if input is {@code null}, return {@code null}.
+     * @return Wrapped {@link Runnable}, or the input {@link Runnable} if it's {@link TtlEnhanced} already
+     * @see com.alibaba.ttl.threadpool.TtlExecutors#getTtlThreadPerTaskExecutorService(java.util.concurrent.ExecutorService)
+     * @since 2.11.0
+     */
+    @Nullable
+    public static Runnable getForNewThread(@Nullable Runnable runnable) {
+        if (null == runnable || runnable instanceof TtlEnhanced) return runnable;
+        return new NewThreadRunnable(runnable, capture());
+    }
+
+    private static final class NewThreadRunnable implements Runnable, TtlEnhanced {
+        private final Runnable runnable;
+        private final Object captured;
 
-        if (runnable instanceof TtlEnhanced) {
-            // avoid redundant decoration, and ensure idempotency
-            if (idempotent) return (TtlRunnable) runnable;
-            else throw new IllegalStateException("Already TtlRunnable!");
+        NewThreadRunnable(@Nonnull Runnable runnable, @Nonnull Object captured) {
+            this.runnable = runnable;
+            this.captured = captured;
+        }
+
+        @Override
+        public void run() {
+            replayOnNewThread(captured);
+            try {
+                runnable.run();
+            } finally {
+                afterExecuteOnNewThread();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return this.getClass().getName() + " - " + runnable.toString();
+        }
+    }
+
+    /**
+     * Factory method, wrap input {@link Runnable} for the periodic task, e.g. scheduled by
+     * {@link java.util.concurrent.ScheduledExecutorService#scheduleAtFixedRate} /
+     * {@link java.util.concurrent.ScheduledExecutorService#scheduleWithFixedDelay}.
+     * <p>
+     * Every run replays the same captured {@link TransmittableThreadLocal} values, the replay is planned at the first run
+     * and the plan is reused by the next runs as long as the pooled thread holds the same values between runs;
+     * so the run costs the changed {@link TransmittableThreadLocal}s only, without comparing all the values.
+     * <p>
+     * The runs of the returned task must not overlap, as the runs of periodic task of {@link java.util.concurrent.ScheduledExecutorService}.
+     *
+     * @param runnable input {@link Runnable}. if input is {@code null}, return {@code null}.
+     * @return Wrapped {@link Runnable}, or the input {@link Runnable} if it's {@link TtlEnhanced} already
+     * @see com.alibaba.ttl.threadpool.TtlExecutors#getTtlScheduledExecutorService(java.util.concurrent.ScheduledExecutorService)
+     * @since 2.11.0
+     */
+    @Nullable
+    public static Runnable getForPeriodic(@Nullable Runnable runnable) {
+        if (null == runnable || runnable instanceof TtlEnhanced) return runnable;
+        return new PeriodicRunnable(runnable, capture());
+    }
+
+    private static final class PeriodicRunnable implements Runnable, TtlEnhanced {
+        private final Runnable runnable;
+        private final Object captured;
+        /**
+         * the plan of the previous run, the runs are ordered by the executor, and the plan is immutable.
+         */
+        private TtlReplayPlan plan;
+
+        PeriodicRunnable(@Nonnull Runnable runnable, @Nonnull Object captured) {
+            this.runnable = runnable;
+            this.captured = captured;
+        }
+
+        @Override
+        public void run() {
+            final TtlBackup backup = replayBackup(captured, plan);
+            plan = backup.plan;
+            try {
+                runnable.run();
+            } finally {
+                restoreBackup(backup);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return this.getClass().getName() + " - " + runnable.toString();
         }
-        return new TtlRunnable(runnable, releaseTtlValueReferenceAfterRun);
+    }
+
+    /**
+     * wrap input {@link Runnable} with the {@link TransmittableThreadLocal} values captured in advance,
+     * for the wrappers binding the captured values before the task is submitted.
+     *
+     * @see TtlCompletableFuture
+     */
+    @Nonnull
+    static TtlRunnable withCaptured(@Nonnull Runnable runnable, @Nonnull Object captured) {
+        return new TtlRunnable(runnable, captured, false);
     }
 
     /**
@@ -139,7 +255,7 @@ public final class TtlRunnable implements Runnable, TtlEnhanced {
      */
     @Nonnull
     public static List<TtlRunnable> gets(@Nullable Collection<? extends Runnable> tasks) {
-        return gets(tasks, false, false);
+        return gets(tasks, false);
     }
 
     /**
@@ -152,27 +268,48 @@ public final class TtlRunnable implements Runnable, TtlEnhanced {
      */
     @Nonnull
     public static List<TtlRunnable> gets(@Nullable Collection<? extends Runnable> tasks, boolean releaseTtlValueReferenceAfterRun) {
-        return gets(tasks, releaseTtlValueReferenceAfterRun, false);
+        if (null == tasks) return Collections.emptyList();
+
+        List<TtlRunnable> copy = new ArrayList<TtlRunnable>(tasks.size());
+        Object captured = null;
+        for (Runnable task : tasks) {
+            if (null == task || task instanceof TtlEnhanced) {
+                copy.add(TtlRunnable.get(task, releaseTtlValueReferenceAfterRun));
+            } else {
+                captured = captureForBatch(captured);
+                copy.add(new TtlRunnable(task, captured, releaseTtlValueReferenceAfterRun));
+            }
+        }
+        return copy;
     }
 
     /**
      * wrap input {@link Runnable} Collection to {@link TtlRunnable} Collection.
+     * <p>
+     * The {@link TransmittableThreadLocal} values are captured once and shared by all wrapped tasks,
+     * unless some {@link TransmittableThreadLocal} overrides {@link TransmittableThreadLocal#copy(Object)}.
      *
      * @param tasks                            task to be wrapped. if input is {@code null}, return {@code null}.
      * @param releaseTtlValueReferenceAfterRun release TTL value reference after run, avoid memory leak even if {@link TtlRunnable} is referred.
-     * @param idempotent                       is idempotent mode or not. if {@code true}, just return input {@link Runnable} when it's {@link TtlRunnable},
+     * @param idempotent                       is idempotent mode or not. if {@code true}, just return input {@link Runnable} when it's {@link TtlEnhanced},
      *                                         otherwise throw {@link IllegalStateException}.
      *                                         <B><I>Caution</I></B>: {@code true} will cover up bugs! <b>DO NOT</b> set, only when you know why.
-     * @return wrapped tasks
-     * @throws IllegalStateException when input is {@link TtlRunnable} already and not idempotent.
+     * @return wrapped tasks, the input {@link Runnable} kept if it's {@link TtlEnhanced} already and idempotent
+     * @throws IllegalStateException when input is {@link TtlEnhanced} already and not idempotent.
      */
     @Nonnull
-    public static List<TtlRunnable> gets(@Nullable Collection<? extends Runnable> tasks, boolean releaseTtlValueReferenceAfterRun, boolean idempotent) {
+    public static List<Runnable> gets(@Nullable Collection<? extends Runnable> tasks, boolean releaseTtlValueReferenceAfterRun, boolean idempotent) {
         if (null == tasks) return Collections.emptyList();
 
-        List<TtlRunnable> copy = new ArrayList<TtlRunnable>();
+        List<Runnable> copy = new ArrayList<Runnable>(tasks.size());
+        Object captured = null;
         for (Runnable task : tasks) {
-            copy.add(TtlRunnable.get(task, releaseTtlValueReferenceAfterRun, idempotent));
+            if (null == task || task instanceof TtlEnhanced) {
+                copy.add(TtlRunnable.get(task, releaseTtlValueReferenceAfterRun, idempotent));
+            } else {
+                captured = captureForBatch(captured);
+                copy.add(new TtlRunnable(task, captured, releaseTtlValueReferenceAfterRun));
+            }
         }
         return copy;
     }
@@ -181,7 +318,9 @@ public final class TtlRunnable implements Runnable, TtlEnhanced {
      * Unwrap {@link TtlRunnable} to the original/underneath one.
      * <p>
      * this method is {@code null}-safe, when input {@code Runnable} parameter is {@code null}, return {@code null};
-     * if input {@code Runnable} parameter is not a {@link TtlRunnable} just return input {@code Runnable}.
+     * if input {@code Runnable} parameter is not a {@link TtlRunnable} or the other TTL wrapper of {@link Runnable}
+     * (e.g. {@link TtlRecyclableRunnable}, the task of {@link #getForNewThread(Runnable)}/{@link #getForPeriodic(Runnable)})
+     * just return input {@code Runnable}.
      * <p>
      * so {@code TtlRunnable.unwrap(TtlRunnable.get(runnable))} will always return the same input {@code runnable} object.
      *
@@ -190,8 +329,11 @@ public final class TtlRunnable implements Runnable, TtlEnhanced {
      */
     @Nullable
     public static Runnable unwrap(@Nullable Runnable runnable) {
-        if (!(runnable instanceof TtlRunnable)) return runnable;
-        else return ((TtlRunnable) runnable).getRunnable();
+        if (runnable instanceof TtlRunnable) return ((TtlRunnable) runnable).getRunnable();
+        if (runnable instanceof TtlRecyclableRunnable) return ((TtlRecyclableRunnable) runnable).getRunnable();
+        if (runnable instanceof NewThreadRunnable) return ((NewThreadRunnable) runnable).runnable;
+        if (runnable instanceof PeriodicRunnable) return ((PeriodicRunnable) runnable).runnable;
+        return runnable;
     }
 
     /**
@@ -211,8 +353,7 @@ public final class TtlRunnable implements Runnable, TtlEnhanced {
 
         List<Runnable> copy = new ArrayList<Runnable>();
         for (Runnable task : tasks) {
-            if (!(task instanceof TtlRunnable)) copy.add(task);
-            else copy.add(((TtlRunnable) task).getRunnable());
+            copy.add(unwrap(task));
         }
         return copy;
     }
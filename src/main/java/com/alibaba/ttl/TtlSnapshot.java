@@ -0,0 +1,100 @@
+package com.alibaba.ttl;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * The immutable snapshot of {@link TransmittableThreadLocal} values,
+ * the result of {@link TransmittableThreadLocal.Transmitter#capture()}, and the backup of the fast path of
+ * {@link TransmittableThreadLocal.Transmitter#replay(Object)}.
+ * <p>
+ * The {@link TransmittableThreadLocal}s and their values are kept in parallel arrays sized exactly,
+ * sorted by the slot of {@link TransmittableThreadLocal}.
+ *
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ * @see TransmittableThreadLocal.Transmitter
+ * @since 2.11.0
+ */
+final class TtlSnapshot {
+    static final TtlSnapshot EMPTY = new TtlSnapshot(new TransmittableThreadLocal<?>[0], new Object[0], null, null, true);
+
+    final TransmittableThreadLocal<?>[] ttls;
+    final Object[] values;
+    /**
+     * Whether the value is not copied yet and should be copied at the first read,
+     * {@code null} if no such value. see {@link TransmittableThreadLocal#TransmittableThreadLocal(boolean)}.
+     */
+    @Nullable
+    final boolean[] pendingCopy;
+    /**
+     * The values of the primitive variants of {@link TransmittableThreadLocal}, whose element in {@link #values}
+     * is {@code null}; {@code null} if no such value. see {@link TtlLongLocal}.
+     */
+    @Nullable
+    final long[] longValues;
+    /**
+     * Whether the snapshot can be shared by tasks, {@code false} if some {@link TransmittableThreadLocal}
+     * overrides {@link TransmittableThreadLocal#copy(Object)}, then every task need its own copy.
+     */
+    final boolean shareable;
+
+    private TtlSnapshot(@Nonnull TransmittableThreadLocal<?>[] ttls, @Nonnull Object[] values, @Nullable boolean[] pendingCopy,
+                        @Nullable long[] longValues, boolean shareable) {
+        this.ttls = ttls;
+        this.values = values;
+        this.pendingCopy = pendingCopy;
+        this.longValues = longValues;
+        this.shareable = shareable;
+    }
+
+    /**
+     * Create snapshot from the first {@code size} elements of arrays, which are filled in slot order.
+     * <p>
+     * The arrays are owned by the created snapshot, trimmed if {@code size} is less than the array length.
+     */
+    @Nonnull
+    static TtlSnapshot of(@Nonnull TransmittableThreadLocal<?>[] ttls, @Nonnull Object[] values, @Nullable boolean[] pendingCopy,
+                          @Nullable long[] longValues, int size, boolean shareable) {
+        if (size == 0) return EMPTY;
+        if (size < ttls.length) {
+            return new TtlSnapshot(Arrays.copyOf(ttls, size), Arrays.copyOf(values, size),
+                    pendingCopy == null ? null : Arrays.copyOf(pendingCopy, size),
+                    longValues == null ? null : Arrays.copyOf(longValues, size), shareable);
+        }
+        return new TtlSnapshot(ttls, values, pendingCopy, longValues, shareable);
+    }
+
+    int size() {
+        return ttls.length;
+    }
+
+    boolean isPendingCopy(int index) {
+        return pendingCopy != null && pendingCopy[index];
+    }
+
+    long longValue(int index) {
+        return longValues == null ? 0 : longValues[index];
+    }
+
+    boolean contains(@Nonnull TransmittableThreadLocal<?> ttl) {
+        return indexOf(ttl) >= 0;
+    }
+
+    /**
+     * Binary search by slot, return the index of {@link TransmittableThreadLocal}, or {@code -1} if absent.
+     */
+    int indexOf(@Nonnull TransmittableThreadLocal<?> ttl) {
+        final int slot = ttl.slot;
+        int low = 0;
+        int high = ttls.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int midSlot = ttls[mid].slot;
+            if (midSlot < slot) low = mid + 1;
+            else if (midSlot > slot) high = mid - 1;
+            else return ttls[mid] == ttl ? mid : -1;
+        }
+        return -1;
+    }
+}
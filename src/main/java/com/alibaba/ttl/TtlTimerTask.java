@@ -3,7 +3,7 @@ package com.alibaba.ttl;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import static com.alibaba.ttl.TransmittableThreadLocal.Transmitter.*;
 
@@ -26,12 +26,15 @@ import static com.alibaba.ttl.TransmittableThreadLocal.Transmitter.*;
  */
 @Deprecated
 public final class TtlTimerTask extends TimerTask implements TtlEnhanced {
-    private final AtomicReference<Object> capturedRef;
+    private static final AtomicReferenceFieldUpdater<TtlTimerTask, Object> capturedUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(TtlTimerTask.class, Object.class, "captured");
+
+    private volatile Object captured;
     private final TimerTask timerTask;
     private final boolean releaseTtlValueReferenceAfterRun;
 
     private TtlTimerTask(@Nonnull TimerTask timerTask, boolean releaseTtlValueReferenceAfterRun) {
-        this.capturedRef = new AtomicReference<Object>(capture());
+        this.captured = capture();
         this.timerTask = timerTask;
         this.releaseTtlValueReferenceAfterRun = releaseTtlValueReferenceAfterRun;
     }
@@ -41,16 +44,16 @@ public final class TtlTimerTask extends TimerTask implements TtlEnhanced {
      */
     @Override
     public void run() {
-        Object captured = capturedRef.get();
-        if (captured == null || releaseTtlValueReferenceAfterRun && !capturedRef.compareAndSet(captured, null)) {
+        Object captured = this.captured;
+        if (captured == null || releaseTtlValueReferenceAfterRun && !capturedUpdater.compareAndSet(this, captured, null)) {
             throw new IllegalStateException("TTL value reference is released after run!");
         }
 
-        Object backup = replay(captured);
+        final TtlBackup backup = replayBackup(captured);
         try {
             timerTask.run();
         } finally {
-            restore(backup);
+            restoreBackup(backup);
         }
     }
 
@@ -24,7 +24,14 @@ class ExecutorTtlWrapper implements Executor, TtlEnhanced {
 
     @Override
     public void execute(@Nonnull Runnable command) {
-        executor.execute(TtlRunnable.get(command));
+        executor.execute(decorate(command));
+    }
+
+    /**
+     * decorate the submitted {@link Runnable}.
+     */
+    Runnable decorate(Runnable task) {
+        return TtlRunnable.get(task);
     }
 
     @Nonnull
@@ -39,13 +39,13 @@ class ScheduledExecutorServiceTtlWrapper extends ExecutorServiceTtlWrapper imple
     @Nonnull
     @Override
     public ScheduledFuture<?> scheduleAtFixedRate(@Nonnull Runnable command, long initialDelay, long period, @Nonnull TimeUnit unit) {
-        return scheduledExecutorService.scheduleAtFixedRate(TtlRunnable.get(command), initialDelay, period, unit);
+        return scheduledExecutorService.scheduleAtFixedRate(TtlRunnable.getForPeriodic(command), initialDelay, period, unit);
     }
 
     @Nonnull
     @Override
     public ScheduledFuture<?> scheduleWithFixedDelay(@Nonnull Runnable command, long initialDelay, long delay, @Nonnull TimeUnit unit) {
-        return scheduledExecutorService.scheduleWithFixedDelay(TtlRunnable.get(command), initialDelay, delay, unit);
+        return scheduledExecutorService.scheduleWithFixedDelay(TtlRunnable.getForPeriodic(command), initialDelay, delay, unit);
     }
 
     @Override
@@ -0,0 +1,52 @@
+package com.alibaba.ttl.threadpool;
+
+import com.alibaba.ttl.TransmittableThreadLocal;
+import com.alibaba.ttl.TtlCallable;
+import com.alibaba.ttl.TtlEnhanced;
+import com.alibaba.ttl.TtlRunnable;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * {@link TransmittableThreadLocal} Wrapper of the thread-per-task {@link ExecutorService}, whose every task is run by
+ * a new thread, e.g. the virtual thread executor.
+ * <p>
+ * The captured {@link TransmittableThreadLocal} values are installed as the context of the new thread directly,
+ * no backup and restore because the thread terminates after the task.
+ *
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ * @see TtlRunnable#getForNewThread(Runnable)
+ * @see TtlCallable#getForNewThread(Callable)
+ * @since 2.11.0
+ */
+class ThreadPerTaskExecutorServiceTtlWrapper extends ExecutorServiceTtlWrapper implements TtlEnhanced {
+    ThreadPerTaskExecutorServiceTtlWrapper(@Nonnull ExecutorService executorService) {
+        super(executorService);
+    }
+
+    @Override
+    Runnable decorate(Runnable task) {
+        return TtlRunnable.getForNewThread(task);
+    }
+
+    @Override
+    <T> Callable<T> decorate(Callable<T> task) {
+        return TtlCallable.getForNewThread(task);
+    }
+
+    @Override
+    <T> Collection<? extends Callable<T>> decorateAll(Collection<? extends Callable<T>> tasks) {
+        if (tasks == null) return null;
+
+        final List<Callable<T>> copy = new ArrayList<Callable<T>>(tasks.size());
+        for (Callable<T> task : tasks) {
+            copy.add(TtlCallable.getForNewThread(task));
+        }
+        return copy;
+    }
+}
@@ -4,6 +4,7 @@ import com.alibaba.ttl.TransmittableThreadLocal;
 import com.alibaba.ttl.TtlEnhanced;
 import com.alibaba.ttl.threadpool.agent.TtlAgent;
 
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.concurrent.*;
 
@@ -69,6 +70,56 @@ public final class TtlExecutors {
         return new ScheduledExecutorServiceTtlWrapper(scheduledExecutorService);
     }
 
+    /**
+     * {@link TransmittableThreadLocal} Wrapper of the thread-per-task {@link ExecutorService}, whose every task is run by
+     * a new thread which terminates after the task, e.g. {@code Executors.newThreadPerTaskExecutor(ThreadFactory)}.
+     * <p>
+     * The captured {@link TransmittableThreadLocal} values are installed as the context of the new thread directly,
+     * without backup and restore. Create the threads by the {@link ThreadFactory} not inheriting
+     * the {@link InheritableThreadLocal} values, so as to avoid the cost of inheritance too.
+     * <p>
+     * <b>DO NOT</b> use it for the thread pool, the pooled thread keeps the {@link TransmittableThreadLocal} values of the task after run.
+     *
+     * @see #getTtlVirtualThreadPerTaskExecutor()
+     * @since 2.11.0
+     */
+    @Nullable
+    public static ExecutorService getTtlThreadPerTaskExecutorService(@Nullable ExecutorService executorService) {
+        if (TtlAgent.isTtlAgentLoaded() || executorService == null || executorService instanceof TtlEnhanced) {
+            return executorService;
+        }
+        return new ThreadPerTaskExecutorServiceTtlWrapper(executorService);
+    }
+
+    /**
+     * Create the {@link TransmittableThreadLocal} aware executor which runs every task by a new virtual thread,
+     * same as {@code Executors.newVirtualThreadPerTaskExecutor()}, except that the virtual threads do not inherit
+     * the {@link InheritableThreadLocal} values; the {@link TransmittableThreadLocal} values captured at the task
+     * submit time are installed as the context of the virtual thread directly, no inheritance copy, backup and restore.
+     * <p>
+     * When the TTL agent is loaded, the executor is not wrapped, the agent decorates the thread-per-task executor.
+     *
+     * @throws UnsupportedOperationException if the virtual thread is not supported, need Java 21+
+     * @see #getTtlThreadPerTaskExecutorService(ExecutorService)
+     * @since 2.11.0
+     */
+    @Nonnull
+    public static ExecutorService getTtlVirtualThreadPerTaskExecutor() {
+        final ExecutorService executorService;
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("inheritInheritableThreadLocals", boolean.class).invoke(builder, false);
+            final ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            executorService = (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, threadFactory);
+        } catch (Exception e) {
+            throw new UnsupportedOperationException("virtual thread is not supported, need Java 21+", e);
+        }
+
+        if (TtlAgent.isTtlAgentLoaded()) return executorService;
+        return new ThreadPerTaskExecutorServiceTtlWrapper(executorService);
+    }
+
     /**
      * check the executor is TTL wrapper executor or not.
      * <p>
@@ -8,7 +8,6 @@ import com.alibaba.ttl.threadpool.agent.internal.transformlet.impl.TtlTimerTaskT
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.Instrumentation;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -74,6 +73,9 @@ public final class TtlAgent {
      * to {@link com.alibaba.ttl.threadpool.DisableInheritableForkJoinWorkerThreadFactory}
      * by util method {@link com.alibaba.ttl.threadpool.TtlForkJoinPoolHelper#getDisableInheritableForkJoinWorkerThreadFactory(java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory)}.
      * </li>
+     * <li>rewrite the {@link java.util.concurrent.ThreadFactory} constructor parameter
+     * of the thread-per-task executor({@code java.util.concurrent.ThreadPerTaskExecutor}, Java 19+) the same way.
+     * </li>
      * </ul>
      * More info about "disable inheritable" see {@link com.alibaba.ttl.TransmittableThreadLocal}.
      * <p>
@@ -104,6 +106,20 @@ public final class TtlAgent {
      * Configuration example:<br>
      * {@code -javaagent:/path/to/transmittable-thread-local-2.x.x.jar=ttl.agent.enable.timer.task:true}
      *
+     * <h3>Enhance the user-defined executor classes</h3>
+     * Enhance the user-defined {@link java.util.concurrent.Executor} classes(e.g. the executors of Netty/Tomcat)
+     * the same way as {@link java.util.concurrent.ThreadPoolExecutor}, config by key {@code ttl.agent.executor.class.names}.
+     * The value is the class names separated by {@code |}, the name ends with {@code *} is the prefix of class names;
+     * the configured class which is not {@link java.util.concurrent.Executor} is skipped. Since version {@code 2.11.0}.
+     * <p>
+     * The subclasses of {@link java.util.concurrent.ThreadPoolExecutor} need no configuration,
+     * unless they override the task submission methods without calling the super methods.
+     * <p>
+     * <b>NOTE:</b> configure the exact class names if possible, the prefix makes the agent check the name of every loaded class.
+     * <p>
+     * Configuration example:<br>
+     * {@code -javaagent:/path/to/transmittable-thread-local-2.x.x.jar=ttl.agent.executor.class.names:io.netty.util.concurrent.SingleThreadEventExecutor|com.foo.executor.*}
+     *
      * <h3>Multi key configuration example</h3>
      * {@code -javaagent:/path/to/transmittable-thread-local-2.x.x.jar=ttl.agent.logger:STDOUT,ttl.agent.disable.inheritable.for.thread.pool:true}
      *
@@ -127,12 +143,13 @@ public final class TtlAgent {
             final boolean disableInheritable = isDisableInheritableForThreadPool();
 
             final List<JavassistTransformlet> transformletList = new ArrayList<JavassistTransformlet>();
-            transformletList.add(new TtlExecutorTransformlet(disableInheritable));
+            transformletList.add(new TtlExecutorTransformlet(disableInheritable, getExecutorClassNames()));
             transformletList.add(new TtlForkJoinTransformlet(disableInheritable));
             if (isEnableTimerTask()) transformletList.add(new TtlTimerTaskTransformlet());
 
-            final ClassFileTransformer transformer = new TtlTransformer(transformletList);
+            final TtlTransformer transformer = new TtlTransformer(transformletList);
             inst.addTransformer(transformer, true);
+            TtlAgent.transformer = transformer;
             logger.info("[TtlAgent.premain] addTransformer " + transformer.getClass() + " success");
 
             logger.info("[TtlAgent.premain] end");
@@ -162,10 +179,38 @@ public final class TtlAgent {
         return ttlAgentLoaded;
     }
 
+    private static volatile TtlTransformer transformer;
+
+    /**
+     * Count of the classes examined by TTL agent, i.e. all the classes loaded(or redefined) after the agent is loaded.
+     *
+     * @return {@code 0} if TTL agent is not loaded
+     * @see #getTransformedClassCount()
+     * @since 2.11.0
+     */
+    public static long getExaminedClassCount() {
+        final TtlTransformer transformer = TtlAgent.transformer;
+        return transformer == null ? 0 : transformer.getExaminedClassCount();
+    }
+
+    /**
+     * Count of the classes transformed by TTL agent.
+     *
+     * @return {@code 0} if TTL agent is not loaded
+     * @see #getExaminedClassCount()
+     * @since 2.11.0
+     */
+    public static long getTransformedClassCount() {
+        final TtlTransformer transformer = TtlAgent.transformer;
+        return transformer == null ? 0 : transformer.getTransformedClassCount();
+    }
+
     private static final String TTL_AGENT_ENABLE_TIMER_TASK_KEY = "ttl.agent.enable.timer.task";
 
     private static final String TTL_AGENT_DISABLE_INHERITABLE_FOR_THREAD_POOL = "ttl.agent.disable.inheritable.for.thread.pool";
 
+    private static final String TTL_AGENT_EXECUTOR_CLASS_NAMES_KEY = "ttl.agent.executor.class.names";
+
     /**
      * Whether disable inheritable for thread pool is enhanced by ttl agent, check {@link #isTtlAgentLoaded()} first.
      *
@@ -190,6 +235,16 @@ public final class TtlAgent {
         return isOptionSet(kvs, TTL_AGENT_ENABLE_TIMER_TASK_KEY);
     }
 
+    /**
+     * The user-defined executor class names enhanced by ttl agent, check {@link #isTtlAgentLoaded()} first.
+     *
+     * @since 2.11.0
+     */
+    @Nonnull
+    public static List<String> getExecutorClassNames() {
+        return splitBarString(null == kvs ? null : kvs.get(TTL_AGENT_EXECUTOR_CLASS_NAMES_KEY));
+    }
+
     private static boolean isOptionSet(@Nullable final Map<String, String> kvs, @Nonnull String key) {
         if (null == kvs) return false;
 
@@ -219,6 +274,21 @@ public final class TtlAgent {
         return ret;
     }
 
+    /**
+     * Split {@code |} separated String({@code "v1|v2"}) to list({@code "v1", "v2"}), the empty values are skipped.
+     */
+    @Nonnull
+    static List<String> splitBarString(@Nullable String barString) {
+        final List<String> ret = new ArrayList<String>();
+        if (barString == null) return ret;
+
+        for (String value : barString.split("\\|")) {
+            final String trimmed = value.trim();
+            if (trimmed.length() > 0) ret.add(trimmed);
+        }
+        return ret;
+    }
+
     private TtlAgent() {
         throw new InstantiationError("Must not instantiate this class");
     }
@@ -7,8 +7,8 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.lang.instrument.ClassFileTransformer;
 import java.security.ProtectionDomain;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
 /**
@@ -23,14 +23,61 @@ public class TtlTransformer implements ClassFileTransformer {
     private static final Logger logger = Logger.getLogger(TtlTransformer.class);
 
     private static final byte[] EMPTY_BYTE_ARRAY = {};
+    /**
+     * the target class name ends with it is the prefix of class names, see {@link JavassistTransformlet#getTargetClassNames()}.
+     */
+    private static final String PREFIX_SUFFIX = "*";
 
-    private final List<JavassistTransformlet> transformletList = new ArrayList<JavassistTransformlet>();
+    /**
+     * the transformlets by the internal name of target class, e.g. {@code java/util/concurrent/ThreadPoolExecutor};
+     * the class not target of any transformlet is rejected by one lookup, without name conversion.
+     */
+    private final Map<String, JavassistTransformlet[]> targetIndex = new HashMap<String, JavassistTransformlet[]>();
+    /**
+     * the internal name prefixes of target classes, e.g. {@code com/foo/executor/}; and their transformlets by index.
+     */
+    private final String[] targetPrefixes;
+    private final JavassistTransformlet[] prefixTransformlets;
+    /**
+     * the transformlets checking every class.
+     */
+    private final JavassistTransformlet[] allClassTransformlets;
+
+    private final AtomicLong examinedClassCount = new AtomicLong();
+    private final AtomicLong transformedClassCount = new AtomicLong();
 
     TtlTransformer(List<? extends JavassistTransformlet> transformletList) {
+        final List<String> targetPrefixList = new ArrayList<String>();
+        final List<JavassistTransformlet> prefixTransformletList = new ArrayList<JavassistTransformlet>();
+        final List<JavassistTransformlet> allClassTransformletList = new ArrayList<JavassistTransformlet>();
         for (JavassistTransformlet transformlet : transformletList) {
-            this.transformletList.add(transformlet);
-            logger.info("[TtlTransformer] add Transformlet " + transformlet.getClass() + " success");
+            final Set<String> targetClassNames = transformlet.getTargetClassNames();
+            if (targetClassNames == null) {
+                allClassTransformletList.add(transformlet);
+            } else {
+                for (String className : targetClassNames) {
+                    if (className.endsWith(PREFIX_SUFFIX)) {
+                        targetPrefixList.add(toClassFile(className.substring(0, className.length() - PREFIX_SUFFIX.length())));
+                        prefixTransformletList.add(transformlet);
+                        continue;
+                    }
+                    final String classFile = toClassFile(className);
+                    final JavassistTransformlet[] transformlets = targetIndex.get(classFile);
+                    if (transformlets == null) {
+                        targetIndex.put(classFile, new JavassistTransformlet[]{transformlet});
+                    } else {
+                        final JavassistTransformlet[] copy = Arrays.copyOf(transformlets, transformlets.length + 1);
+                        copy[transformlets.length] = transformlet;
+                        targetIndex.put(classFile, copy);
+                    }
+                }
+            }
+            logger.info("[TtlTransformer] add Transformlet " + transformlet.getClass() + " success, target classes: " +
+                    (targetClassNames == null ? "all" : targetClassNames));
         }
+        targetPrefixes = targetPrefixList.toArray(new String[0]);
+        prefixTransformlets = prefixTransformletList.toArray(new JavassistTransformlet[0]);
+        allClassTransformlets = allClassTransformletList.toArray(new JavassistTransformlet[0]);
     }
 
     @Override
@@ -40,11 +87,22 @@ public class TtlTransformer implements ClassFileTransformer {
             // Lambda has no class file, no need to transform, just return.
             if (classFile == null) return EMPTY_BYTE_ARRAY;
 
+            examinedClassCount.incrementAndGet();
+            final JavassistTransformlet[] targetTransformlets = targetIndex.get(classFile);
+            final int prefixIndex = indexOfPrefix(classFile, 0);
+            if (targetTransformlets == null && prefixIndex < 0 && allClassTransformlets.length == 0) return EMPTY_BYTE_ARRAY;
+
             final String className = toClassName(classFile);
-            for (JavassistTransformlet transformlet : transformletList) {
-                final byte[] bytes = transformlet.doTransform(className, classFileBuffer, loader);
+            if (targetTransformlets != null) {
+                final byte[] bytes = doTransform(targetTransformlets, className, classFileBuffer, loader);
+                if (bytes != null) return bytes;
+            }
+            for (int i = prefixIndex; i >= 0; i = indexOfPrefix(classFile, i + 1)) {
+                final byte[] bytes = doTransform(prefixTransformlets[i], className, classFileBuffer, loader);
                 if (bytes != null) return bytes;
             }
+            final byte[] bytes = doTransform(allClassTransformlets, className, classFileBuffer, loader);
+            if (bytes != null) return bytes;
         } catch (Throwable t) {
             String msg = "Fail to transform class " + classFile + ", cause: " + t.toString();
             logger.log(Level.SEVERE, msg, t);
@@ -54,7 +112,57 @@ public class TtlTransformer implements ClassFileTransformer {
         return EMPTY_BYTE_ARRAY;
     }
 
+    /**
+     * @return the index of the first target prefix of the class from {@code fromIndex}, {@code -1} if none
+     */
+    private int indexOfPrefix(final String classFile, final int fromIndex) {
+        for (int i = fromIndex; i < targetPrefixes.length; i++) {
+            if (classFile.startsWith(targetPrefixes[i])) return i;
+        }
+        return -1;
+    }
+
+    @Nullable
+    private byte[] doTransform(final JavassistTransformlet[] transformlets, final String className,
+                               final byte[] classFileBuffer, final ClassLoader loader) throws Exception {
+        for (JavassistTransformlet transformlet : transformlets) {
+            final byte[] bytes = doTransform(transformlet, className, classFileBuffer, loader);
+            if (bytes != null) return bytes;
+        }
+        return null;
+    }
+
+    @Nullable
+    private byte[] doTransform(final JavassistTransformlet transformlet, final String className,
+                               final byte[] classFileBuffer, final ClassLoader loader) throws Exception {
+        final byte[] bytes = transformlet.doTransform(className, classFileBuffer, loader);
+        if (bytes != null) transformedClassCount.incrementAndGet();
+        return bytes;
+    }
+
+    /**
+     * Count of the classes passed to this transformer.
+     *
+     * @since 2.11.0
+     */
+    public long getExaminedClassCount() {
+        return examinedClassCount.get();
+    }
+
+    /**
+     * Count of the classes transformed by this transformer.
+     *
+     * @since 2.11.0
+     */
+    public long getTransformedClassCount() {
+        return transformedClassCount.get();
+    }
+
     private static String toClassName(final String classFile) {
         return classFile.replace('/', '.');
     }
+
+    private static String toClassFile(final String className) {
+        return className.replace('.', '/');
+    }
 }
@@ -3,7 +3,9 @@ package com.alibaba.ttl.threadpool.agent.internal.transformlet;
 import javassist.CannotCompileException;
 import javassist.NotFoundException;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.Set;
 
 /**
  * TTL {@code Transformlet} by {@code Javassist}.
@@ -12,5 +14,16 @@ import java.io.IOException;
  * @since 2.5.1
  */
 public interface JavassistTransformlet {
+    /**
+     * The names of the classes transformed by this transformlet, e.g. {@code java.util.concurrent.ThreadPoolExecutor};
+     * the name ends with {@code *} is the prefix of class names, e.g. {@code com.foo.executor.*};
+     * the other classes are not passed to {@link #doTransform}.
+     *
+     * @return {@code null} if the transformlet checks every loaded class, e.g. the subclasses of {@link java.util.TimerTask}
+     * @since 2.11.0
+     */
+    @Nullable
+    Set<String> getTargetClassNames();
+
     byte[] doTransform(String className, byte[] classFileBuffer, ClassLoader loader) throws IOException, NotFoundException, CannotCompileException;
 }
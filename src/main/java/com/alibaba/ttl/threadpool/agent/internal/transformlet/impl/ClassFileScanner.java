@@ -0,0 +1,146 @@
+package com.alibaba.ttl.threadpool.agent.internal.transformlet.impl;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Scan the class file bytes in place, without inflating the class by {@code javassist}.
+ * <p>
+ * Only the offsets of constant pool entries are recorded, the names are compared to the bytes of class file directly;
+ * so the transformlet checks whether the class is its target cheaply, and only inflates the target class.
+ * <p>
+ * The names used here are the internal names of class file, e.g. {@code java/lang/Object}.
+ *
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ * @see <a href="https://docs.oracle.com/javase/specs/jvms/se8/html/jvms-4.html">The class File Format</a>
+ * @since 2.11.0
+ */
+final class ClassFileScanner {
+    private static final int ACC_INTERFACE = 0x0200;
+
+    private final byte[] bytes;
+    /**
+     * offset of the constant pool entry by index, point to the content after tag.
+     */
+    private final int[] cpOffsets;
+    /**
+     * offset of {@code access_flags}, after the constant pool.
+     */
+    private final int header;
+
+    ClassFileScanner(@Nonnull byte[] classFileBuffer) {
+        bytes = classFileBuffer;
+
+        final int count = u2(8);
+        cpOffsets = new int[count];
+        int offset = 10;
+        for (int i = 1; i < count; i++) {
+            cpOffsets[i] = offset + 1;
+            switch (bytes[offset]) {
+                case 1: // Utf8
+                    offset += 3 + u2(offset + 1);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    offset += 9;
+                    i++;
+                    break;
+                case 15: // MethodHandle
+                    offset += 4;
+                    break;
+                case 7: // Class
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    offset += 3;
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    offset += 5;
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown constant pool tag " + bytes[offset] + " at offset " + offset);
+            }
+        }
+        header = offset;
+    }
+
+    /**
+     * Whether the class is interface, include annotation.
+     */
+    boolean isInterface() {
+        return (u2(header) & ACC_INTERFACE) != 0;
+    }
+
+    /**
+     * Whether the direct super class is the given one.
+     *
+     * @param internalName ASCII internal name of class, e.g. {@code java/lang/Object}
+     */
+    boolean isSuperClass(@Nonnull String internalName) {
+        final int superIndex = u2(header + 4);
+        return superIndex != 0 && utf8Equals(u2(cpOffsets[superIndex]), internalName);
+    }
+
+    /**
+     * Whether the class declares the method, not include the inherited ones.
+     *
+     * @param name       ASCII method name
+     * @param descriptor ASCII method descriptor, e.g. {@code ()V}
+     */
+    boolean declaresMethod(@Nonnull String name, @Nonnull String descriptor) {
+        // skip access_flags, this_class, super_class and interfaces
+        int offset = header + 6;
+        offset += 2 + 2 * u2(offset);
+        // skip fields
+        int count = u2(offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            offset = skipAttributes(offset + 6);
+        }
+
+        count = u2(offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            if (utf8Equals(u2(offset + 2), name) && utf8Equals(u2(offset + 4), descriptor)) return true;
+            offset = skipAttributes(offset + 6);
+        }
+        return false;
+    }
+
+    private int skipAttributes(int offset) {
+        final int count = u2(offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            offset += 6 + u4(offset + 2);
+        }
+        return offset;
+    }
+
+    /**
+     * Compare the Utf8 entry to the ASCII string, without decoding.
+     */
+    private boolean utf8Equals(int index, @Nonnull String s) {
+        final int offset = cpOffsets[index];
+        final int length = u2(offset);
+        if (length != s.length()) return false;
+        for (int i = 0; i < length; i++) {
+            if (bytes[offset + 2 + i] != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private int u2(int offset) {
+        return (bytes[offset] & 0xFF) << 8 | bytes[offset + 1] & 0xFF;
+    }
+
+    private int u4(int offset) {
+        return u2(offset) << 16 | u2(offset + 2);
+    }
+}
@@ -6,11 +6,10 @@ import javassist.*;
 
 import java.io.IOException;
 import java.lang.reflect.Modifier;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.logging.Level;
 
+import static com.alibaba.ttl.threadpool.agent.internal.transformlet.impl.Utils.doTryFinallyForMethod;
 import static com.alibaba.ttl.threadpool.agent.internal.transformlet.impl.Utils.getCtClass;
 import static com.alibaba.ttl.threadpool.agent.internal.transformlet.impl.Utils.signatureOfMethod;
 
@@ -24,6 +23,7 @@ import static com.alibaba.ttl.threadpool.agent.internal.transformlet.impl.Utils.
  * @see java.util.concurrent.ThreadPoolExecutor
  * @see java.util.concurrent.ScheduledThreadPoolExecutor
  * @see java.util.concurrent.Executors
+ * @see com.alibaba.ttl.TtlRunnable#getForNewThread(Runnable)
  * @since 2.5.1
  */
 public class TtlExecutorTransformlet implements JavassistTransformlet {
@@ -31,6 +31,16 @@ public class TtlExecutorTransformlet implements JavassistTransformlet {
 
     private static Set<String> EXECUTOR_CLASS_NAMES = new HashSet<String>();
     private static final Map<String, String> PARAM_TYPE_NAME_TO_DECORATE_METHOD_CLASS = new HashMap<String, String>();
+    /**
+     * The methods scheduling the periodic task, whose {@link Runnable} is decorated by {@code TtlRunnable.getForPeriodic}.
+     */
+    private static final Set<String> PERIODIC_METHOD_NAMES = new HashSet<String>(Arrays.asList("scheduleAtFixedRate", "scheduleWithFixedDelay"));
+    /**
+     * The task submission methods of {@link java.util.concurrent.Executor}/{@link java.util.concurrent.ExecutorService}/
+     * {@link java.util.concurrent.ScheduledExecutorService}, the only methods decorated for the user-defined executor classes.
+     */
+    private static final Set<String> SUBMISSION_METHOD_NAMES = new HashSet<String>(Arrays.asList(
+            "execute", "submit", "invokeAll", "invokeAny", "schedule", "scheduleAtFixedRate", "scheduleWithFixedDelay"));
 
     static {
         EXECUTOR_CLASS_NAMES.add("java.util.concurrent.ThreadPoolExecutor");
@@ -40,12 +50,53 @@ public class TtlExecutorTransformlet implements JavassistTransformlet {
         PARAM_TYPE_NAME_TO_DECORATE_METHOD_CLASS.put("java.util.concurrent.Callable", "com.alibaba.ttl.TtlCallable");
     }
 
+    private static final String RUNNABLE_CLASS_NAME = "java.lang.Runnable";
+    private static final String EXECUTOR_INTERFACE_NAME = "java.util.concurrent.Executor";
     private static final String THREAD_FACTORY_CLASS_NAME = "java.util.concurrent.ThreadFactory";
 
+    /**
+     * the thread-per-task executor since Java 19, e.g. {@code Executors.newVirtualThreadPerTaskExecutor()}.
+     */
+    private static final String THREAD_PER_TASK_EXECUTOR_CLASS_NAME = "java.util.concurrent.ThreadPerTaskExecutor";
+
     private final boolean disableInheritable;
 
+    /**
+     * the user-defined {@link java.util.concurrent.Executor} classes, enhanced the same way as the JDK thread pools;
+     * the name ends with {@code *} is the prefix.
+     */
+    private final Set<String> userExecutorClassNames = new HashSet<String>();
+    /**
+     * the prefixes of the user-defined executor class names, the configured name without the ending {@code *}.
+     */
+    private final List<String> userExecutorClassNamePrefixes = new ArrayList<String>();
+
     public TtlExecutorTransformlet(boolean disableInheritable) {
+        this(disableInheritable, Collections.<String>emptyList());
+    }
+
+    /**
+     * @param userExecutorClassNames the names of user-defined {@link java.util.concurrent.Executor} classes;
+     *                               the name ends with {@code *} is the prefix, e.g. {@code io.netty.util.concurrent.*}
+     * @since 2.11.0
+     */
+    public TtlExecutorTransformlet(boolean disableInheritable, List<String> userExecutorClassNames) {
         this.disableInheritable = disableInheritable;
+        this.userExecutorClassNames.addAll(userExecutorClassNames);
+        for (String className : userExecutorClassNames) {
+            if (className.endsWith("*")) {
+                userExecutorClassNamePrefixes.add(className.substring(0, className.length() - 1));
+            }
+        }
+    }
+
+    @Override
+    public Set<String> getTargetClassNames() {
+        // the prefixes(ends with *) are kept, indexed by TtlTransformer as is
+        final Set<String> classNames = new HashSet<String>(EXECUTOR_CLASS_NAMES);
+        classNames.add(THREAD_PER_TASK_EXECUTOR_CLASS_NAME);
+        classNames.addAll(userExecutorClassNames);
+        return classNames;
     }
 
     @Override
@@ -59,26 +110,114 @@ public class TtlExecutorTransformlet implements JavassistTransformlet {
 
             if (disableInheritable) updateConstructorDisableInheritable(clazz);
 
+            return clazz.toBytecode();
+        } else if (THREAD_PER_TASK_EXECUTOR_CLASS_NAME.equals(className)) {
+            final CtClass clazz = getCtClass(classFileBuffer, loader);
+
+            updateNewThreadMethodOfThreadPerTaskExecutor(clazz);
+            if (disableInheritable) updateConstructorDisableInheritable(clazz);
+
+            return clazz.toBytecode();
+        } else if (isUserExecutorClass(className)) {
+            if (new ClassFileScanner(classFileBuffer).isInterface()) return null;
+
+            final CtClass clazz = getCtClass(classFileBuffer, loader);
+            if (!isExecutor(clazz)) return null;
+
+            for (CtMethod method : clazz.getDeclaredMethods()) {
+                // the other methods of user class taking Runnable/Callable(e.g. newThread(Runnable)) are not task submission
+                if (SUBMISSION_METHOD_NAMES.contains(method.getName())) updateSubmissionMethodOfUserExecutorClass(method);
+            }
+
+            if (disableInheritable) updateConstructorDisableInheritable(clazz);
+
             return clazz.toBytecode();
         }
         return null;
     }
 
+    private boolean isUserExecutorClass(final String className) {
+        if (userExecutorClassNames.contains(className)) return true;
+        for (String prefix : userExecutorClassNamePrefixes) {
+            if (className.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * The class configured by user, maybe not {@link java.util.concurrent.Executor}, e.g. the other classes
+     * of the package matched by prefix. Skip it instead of failing the class loading.
+     */
+    private boolean isExecutor(final CtClass clazz) {
+        try {
+            return clazz.subtypeOf(clazz.getClassPool().get(EXECUTOR_INTERFACE_NAME));
+        } catch (NotFoundException e) {
+            logger.log(Level.WARNING, "skip the user executor class " + clazz.getName() + " whose hierarchy is not found, cause: " + e.toString(), e);
+            return false;
+        }
+    }
+
+    /**
+     * All tasks of thread-per-task executor({@code execute}/{@code submit}/{@code invokeAll}/{@code invokeAny})
+     * are run by the thread created by the private method {@code newThread(Runnable)} in the submitting thread,
+     * decorate it once with the task for the new thread, which installs the captured values without backup and restore.
+     */
+    private void updateNewThreadMethodOfThreadPerTaskExecutor(final CtClass clazz) throws NotFoundException, CannotCompileException {
+        final CtMethod method = clazz.getDeclaredMethod("newThread", new CtClass[]{clazz.getClassPool().get("java.lang.Runnable")});
+        final String code = "$1 = com.alibaba.ttl.TtlRunnable.getForNewThread($1);";
+        logger.info("insert code before method " + signatureOfMethod(method) + " of class " + method.getDeclaringClass().getName() + ": " + code);
+        method.insertBefore(code);
+    }
+
     private void updateMethodOfExecutorClass(final CtMethod method) throws NotFoundException, CannotCompileException {
+        final String code = decorateCodeOf(method);
+        if (code != null) method.insertBefore(code);
+    }
+
+    /**
+     * The submission methods of the user-defined executor may call each other, e.g. {@code submit} calls {@code execute}
+     * with the {@code FutureTask} of the decorated task, which is not {@code TtlEnhanced}. So only the outermost
+     * submission method of the executor in the thread decorates the tasks, the nested ones keep the tasks as is.
+     *
+     * @see Utils#enterUserExecutorSubmission(Object)
+     */
+    private void updateSubmissionMethodOfUserExecutorClass(final CtMethod method) throws NotFoundException, CannotCompileException {
+        final String code = decorateCodeOf(method);
+        if (code == null) return;
+
+        final String beforeCode = "Object ttlPreviousExecutor = com.alibaba.ttl.threadpool.agent.internal.transformlet.impl.Utils.enterUserExecutorSubmission(this);\n" +
+                "if (ttlPreviousExecutor != this) { " + code + " }";
+        final String finallyCode = "com.alibaba.ttl.threadpool.agent.internal.transformlet.impl.Utils.exitUserExecutorSubmission(ttlPreviousExecutor);";
+        doTryFinallyForMethod(method, beforeCode, finallyCode);
+    }
+
+    /**
+     * the code decorating the {@link Runnable}/{@link java.util.concurrent.Callable} parameters of the method,
+     * {@code null} if none.
+     */
+    private String decorateCodeOf(final CtMethod method) throws NotFoundException {
         final int modifiers = method.getModifiers();
-        if (!Modifier.isPublic(modifiers) || Modifier.isStatic(modifiers)) return;
+        if (!Modifier.isPublic(modifiers) || Modifier.isStatic(modifiers) || Modifier.isAbstract(modifiers)) return null;
 
         CtClass[] parameterTypes = method.getParameterTypes();
         StringBuilder insertCode = new StringBuilder();
         for (int i = 0; i < parameterTypes.length; i++) {
             final String paramTypeName = parameterTypes[i].getName();
-            if (PARAM_TYPE_NAME_TO_DECORATE_METHOD_CLASS.containsKey(paramTypeName)) {
-                String code = String.format("$%d = %s.get($%d, false, true);", i + 1, PARAM_TYPE_NAME_TO_DECORATE_METHOD_CLASS.get(paramTypeName), i + 1);
+            if (RUNNABLE_CLASS_NAME.equals(paramTypeName) && PERIODIC_METHOD_NAMES.contains(method.getName())) {
+                String code = String.format("$%d = com.alibaba.ttl.TtlRunnable.getForPeriodic($%<d);", i + 1);
+                logger.info("insert code before method " + signatureOfMethod(method) + " of class " + method.getDeclaringClass().getName() + ": " + code);
+                insertCode.append(code);
+            } else if (PARAM_TYPE_NAME_TO_DECORATE_METHOD_CLASS.containsKey(paramTypeName)) {
+                // the TtlEnhanced task is kept as is: the task decorated already by the method delegating to this one
+                // (e.g. execute/submit of ScheduledThreadPoolExecutor call schedule) is captured once;
+                // and TtlRecyclableRunnable is not TtlRunnable/TtlCallable
+                String code = String.format("if (!($%1$d instanceof com.alibaba.ttl.TtlEnhanced)) $%1$d = %2$s.get($%1$d, false, true);",
+                        i + 1, PARAM_TYPE_NAME_TO_DECORATE_METHOD_CLASS.get(paramTypeName));
                 logger.info("insert code before method " + signatureOfMethod(method) + " of class " + method.getDeclaringClass().getName() + ": " + code);
                 insertCode.append(code);
             }
         }
-        if (insertCode.length() > 0) method.insertBefore(insertCode.toString());
+        return insertCode.length() > 0 ? insertCode.toString() : null;
     }
 
     private void updateConstructorDisableInheritable(final CtClass clazz) throws NotFoundException, CannotCompileException {
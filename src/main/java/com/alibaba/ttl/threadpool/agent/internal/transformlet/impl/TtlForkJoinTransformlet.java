@@ -6,6 +6,8 @@ import com.alibaba.ttl.threadpool.agent.internal.transformlet.JavassistTransform
 import javassist.*;
 
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
 
 import static com.alibaba.ttl.threadpool.agent.internal.transformlet.impl.Utils.*;
 
@@ -31,6 +33,14 @@ public class TtlForkJoinTransformlet implements JavassistTransformlet {
         this.disableInheritable = disableInheritable;
     }
 
+    @Override
+    public Set<String> getTargetClassNames() {
+        final Set<String> classNames = new HashSet<String>();
+        classNames.add(FORK_JOIN_TASK_CLASS_NAME);
+        if (disableInheritable) classNames.add(FORK_JOIN_POOL_CLASS_NAME);
+        return classNames;
+    }
+
     @Override
     public byte[] doTransform(String className, byte[] classFileBuffer, ClassLoader loader) throws IOException, NotFoundException, CannotCompileException {
         if (FORK_JOIN_TASK_CLASS_NAME.equals(className)) {
@@ -62,9 +72,10 @@ public class TtlForkJoinTransformlet implements JavassistTransformlet {
         final String beforeCode = "if (this instanceof " + TtlEnhanced.class.getName() + ") {\n" +
                 "    return " + doExec_renamed_method_rename + "($$);\n" + // do nothing/directly return, if is TTL ForkJoinTask instance
                 "}\n" +
-                "Object backup = com.alibaba.ttl.TransmittableThreadLocal.Transmitter.replay(" + capturedFieldName + ");";
+                // ForkJoin is Java 7+, so replay by the pooled frame
+                "com.alibaba.ttl.TtlFrame frame = com.alibaba.ttl.TransmittableThreadLocal.Transmitter.replayFrame(" + capturedFieldName + ");";
 
-        final String finallyCode = "com.alibaba.ttl.TransmittableThreadLocal.Transmitter.restore(backup);";
+        final String finallyCode = "frame.close();";
 
         doTryFinallyForMethod(doExecMethod, doExec_renamed_method_rename, beforeCode, finallyCode);
     }
@@ -5,6 +5,7 @@ import com.alibaba.ttl.threadpool.agent.internal.transformlet.JavassistTransform
 import javassist.*;
 
 import java.io.IOException;
+import java.util.Set;
 
 import static com.alibaba.ttl.threadpool.agent.internal.transformlet.impl.Utils.*;
 
@@ -23,22 +24,23 @@ public class TtlTimerTaskTransformlet implements JavassistTransformlet {
     private static final String TIMER_TASK_CLASS_NAME = "java.util.TimerTask";
     private static final String RUN_METHOD_NAME = "run";
 
+    @Override
+    public Set<String> getTargetClassNames() {
+        // the subclasses of TimerTask are unknown, check every class
+        return null;
+    }
+
     @Override
     public byte[] doTransform(String className, byte[] classFileBuffer, ClassLoader loader) throws IOException, NotFoundException, CannotCompileException {
         if (TIMER_TASK_CLASS_NAME.equals(className)) return null; // No need transform TimerTask class
 
-        final CtClass clazz = getCtClass(classFileBuffer, loader);
-
-        if (clazz.isPrimitive() || clazz.isArray() || clazz.isInterface() || clazz.isAnnotation()) {
-            return null;
-        }
+        // every loaded class is checked, scan the class file instead of inflating it by javassist
+        final ClassFileScanner scanner = new ClassFileScanner(classFileBuffer);
+        if (scanner.isInterface() || scanner.isSuperClass("java/lang/Object")) return null;
         // class contains method `void run()` ?
-        try {
-            final CtMethod runMethod = clazz.getDeclaredMethod(RUN_METHOD_NAME, new CtClass[0]);
-            if (!CtClass.voidType.equals(runMethod.getReturnType())) return null;
-        } catch (NotFoundException e) {
-            return null;
-        }
+        if (!scanner.declaresMethod(RUN_METHOD_NAME, "()V")) return null;
+
+        final CtClass clazz = getCtClass(classFileBuffer, loader);
         if (!clazz.subclassOf(clazz.getClassPool().get(TIMER_TASK_CLASS_NAME))) return null;
 
         logger.info("Transforming class " + className);
@@ -96,4 +96,35 @@ public class Utils {
         else return TransmittableThreadLocal.Transmitter.capture();
     }
 
+    /**
+     * the user-defined executor running its outermost task submission method in the thread.
+     */
+    private static final ThreadLocal<Object> userExecutorInSubmission = new ThreadLocal<Object>();
+
+    /**
+     * Enter the task submission method of the user-defined executor.
+     *
+     * @return the executor in submission before enter, the same executor if the submission is nested,
+     * e.g. {@code submit} calls {@code execute} of the same executor, whose task is decorated already
+     * @see TtlExecutorTransformlet
+     * @since 2.11.0
+     */
+    @SuppressWarnings("unused")
+    public static Object enterUserExecutorSubmission(Object executor) {
+        final Object previous = userExecutorInSubmission.get();
+        if (previous != executor) userExecutorInSubmission.set(executor);
+        return previous;
+    }
+
+    /**
+     * Exit the task submission method of the user-defined executor, see {@link #enterUserExecutorSubmission(Object)}.
+     *
+     * @param previous the executor in submission before enter
+     * @since 2.11.0
+     */
+    @SuppressWarnings("unused")
+    public static void exitUserExecutorSubmission(Object previous) {
+        userExecutorInSubmission.set(previous);
+    }
+
 }
@@ -0,0 +1,87 @@
+package com.alibaba.perf.jmh;
+
+import com.alibaba.ttl.TransmittableThreadLocal;
+import com.alibaba.ttl.threadpool.TtlExecutors;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.*;
+
+/**
+ * Benchmark the task submission of {@link ThreadPoolExecutor}, which is waited to finish.
+ * <ul>
+ * <li>{@code execute}: {@link ThreadPoolExecutor#execute(Runnable)},
+ * enhanced when run with the TTL agent(see {@code scripts/perf-test/jmh.sh})</li>
+ * <li>{@code ttlWrapper_submit}: {@code submit} of the {@link ExecutorService} wrapped by
+ * {@link TtlExecutors#getTtlExecutorService(ExecutorService)}</li>
+ * </ul>
+ *
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExecutorBenchmark {
+    private static final int TTL_COUNT = 8;
+
+    private final TransmittableThreadLocal<?>[] ttls = new TransmittableThreadLocal<?>[TTL_COUNT];
+
+    private ExecutorService executorService;
+    private ExecutorService ttlExecutorService;
+
+    private final Runnable task = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < TTL_COUNT; i++) {
+            final TransmittableThreadLocal<String> ttl = new TransmittableThreadLocal<String>();
+            ttl.set("value-" + i);
+            ttls[i] = ttl;
+        }
+
+        executorService = Executors.newFixedThreadPool(1);
+        ttlExecutorService = TtlExecutors.getTtlExecutorService(Executors.newFixedThreadPool(1));
+    }
+
+    @TearDown
+    public void tearDown() {
+        executorService.shutdown();
+        ttlExecutorService.shutdown();
+        for (TransmittableThreadLocal<?> ttl : ttls) {
+            ttl.remove();
+        }
+    }
+
+    @Benchmark
+    public void execute() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        executorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        latch.await();
+    }
+
+    @Benchmark
+    public Object ttlWrapper_submit() throws Exception {
+        return ttlExecutorService.submit(task).get();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ExecutorBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
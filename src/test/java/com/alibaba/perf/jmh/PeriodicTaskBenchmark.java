@@ -0,0 +1,96 @@
+package com.alibaba.perf.jmh;
+
+import com.alibaba.ttl.TransmittableThreadLocal;
+import com.alibaba.ttl.TtlRunnable;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark a run(a tick) of the periodic task, in the pooled thread holding its own values between runs.
+ * <ul>
+ * <li>{@code ttlRunnable_run}: the task decorated by {@link TtlRunnable#get(Runnable)}, as the periodic task
+ * of {@code ScheduledExecutorServiceTtlWrapper} before, replay by the merge walk every run</li>
+ * <li>{@code periodic_run}: the task decorated by {@link TtlRunnable#getForPeriodic(Runnable)}, as the periodic task
+ * of {@link com.alibaba.ttl.threadpool.TtlExecutors#getTtlScheduledExecutorService(ScheduledExecutorService)} now,
+ * replay by the plan of the first run</li>
+ * </ul>
+ * The run is called directly, so the cost of scheduling is excluded. The pooled thread holds {@code changedCount}
+ * of the task TTLs with its own values, the others with the same values as the task.
+ *
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PeriodicTaskBenchmark {
+    private static final int TTL_COUNT = 8;
+
+    private final TransmittableThreadLocal<?>[] ttls = new TransmittableThreadLocal<?>[TTL_COUNT];
+
+    @Param({"1", "8"})
+    private int changedCount;
+
+    private Runnable ttlRunnable;
+    private Runnable periodicRunnable;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < ttls.length; i++) {
+            ttls[i] = new TransmittableThreadLocal<String>();
+        }
+        for (int i = 0; i < TTL_COUNT; i++) {
+            set(i, "task-" + i);
+        }
+
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        ttlRunnable = TtlRunnable.get(task);
+        periodicRunnable = TtlRunnable.getForPeriodic(task);
+
+        // the values of pooled thread between runs
+        for (int i = 0; i < changedCount; i++) {
+            set(i, "worker-" + i);
+        }
+        TransmittableThreadLocal.Transmitter.capture();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void set(int index, String value) {
+        ((TransmittableThreadLocal<String>) ttls[index]).set(value);
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (TransmittableThreadLocal<?> ttl : ttls) {
+            ttl.remove();
+        }
+    }
+
+    @Benchmark
+    public void ttlRunnable_run() {
+        ttlRunnable.run();
+    }
+
+    @Benchmark
+    public void periodic_run() {
+        periodicRunnable.run();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PeriodicTaskBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
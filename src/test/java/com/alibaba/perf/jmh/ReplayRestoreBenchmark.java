@@ -0,0 +1,75 @@
+package com.alibaba.perf.jmh;
+
+import com.alibaba.ttl.TransmittableThreadLocal;
+import com.alibaba.ttl.TransmittableThreadLocal.Transmitter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare {@link Transmitter#replay(Object)}/{@link Transmitter#restore(Object)} of the captured context
+ * the current thread already holds(e.g. {@code CallerRunsPolicy}) with the one from other context.
+ *
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReplayRestoreBenchmark {
+    @Param({"1", "8", "64"})
+    public int ttlCount;
+
+    private TransmittableThreadLocal<String>[] ttls;
+    private Object sameContextCaptured;
+    private Object otherContextCaptured;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        ttls = new TransmittableThreadLocal[ttlCount];
+        for (int i = 0; i < ttlCount; i++) {
+            ttls[i] = new TransmittableThreadLocal<String>();
+            ttls[i].set("other-" + i);
+        }
+        otherContextCaptured = Transmitter.capture();
+
+        for (int i = 0; i < ttlCount; i++) {
+            ttls[i].set("value-" + i);
+        }
+        sameContextCaptured = Transmitter.capture();
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (TransmittableThreadLocal<String> ttl : ttls) {
+            ttl.remove();
+        }
+    }
+
+    @Benchmark
+    public Object replayRestore_sameContext() {
+        final Object backup = Transmitter.replay(sameContextCaptured);
+        Transmitter.restore(backup);
+        return backup;
+    }
+
+    @Benchmark
+    public Object replayRestore_otherContext() {
+        final Object backup = Transmitter.replay(otherContextCaptured);
+        Transmitter.restore(backup);
+        return backup;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ReplayRestoreBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
@@ -0,0 +1,127 @@
+package com.alibaba.perf.jmh;
+
+import com.alibaba.ttl.threadpool.agent.internal.logging.Logger;
+import com.alibaba.ttl.threadpool.agent.internal.transformlet.impl.TtlTimerTaskTransformlet;
+import javassist.ClassPool;
+import javassist.LoaderClassPath;
+import kotlin.Unit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Benchmark the cost of TTL agent checking all classes of a class corpus, which is paid at the startup of application,
+ * every loaded class is passed to the transformlets. The corpus by {@code corpus} param:
+ * <ul>
+ * <li>{@code jars}: the {@code kotlin-stdlib} and {@code javassist} jars, about 2k classes</li>
+ * <li>{@code rt}: the {@code rt.jar} of JDK 8, about 20k classes, the size of a big application;
+ * the {@code jars} corpus instead since Java 9, no {@code rt.jar}</li>
+ * </ul>
+ * <ul>
+ * <li>{@code timerTaskTransformlet}: {@link TtlTimerTaskTransformlet}, which checks every class whether it's
+ * the subclass of {@link java.util.TimerTask}, only inflates the candidate classes</li>
+ * <li>{@code javassist_makeClass}: inflate every class by {@code javassist}, the cost of the check before</li>
+ * </ul>
+ *
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransformletBenchmark {
+    static {
+        Logger.setLoggerImplType(Logger.STDERR);
+    }
+
+    @Param({"jars", "rt"})
+    private String corpus;
+
+    private final List<String> classNames = new ArrayList<String>();
+    private final List<byte[]> classFiles = new ArrayList<byte[]>();
+
+    private final ClassLoader loader = TransformletBenchmark.class.getClassLoader();
+    private final TtlTimerTaskTransformlet timerTaskTransformlet = new TtlTimerTaskTransformlet();
+
+    @Setup
+    public void setup() throws Exception {
+        final File rtJar = new File(System.getProperty("java.home"), "lib/rt.jar");
+        if ("rt".equals(corpus) && rtJar.isFile()) {
+            readClassFiles(rtJar);
+        } else {
+            readClassFiles(new File(Unit.class.getProtectionDomain().getCodeSource().getLocation().toURI()));
+            readClassFiles(new File(ClassPool.class.getProtectionDomain().getCodeSource().getLocation().toURI()));
+        }
+    }
+
+    private void readClassFiles(File jar) throws Exception {
+        final JarFile jarFile = new JarFile(jar);
+        try {
+            final Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                final JarEntry entry = entries.nextElement();
+                final String name = entry.getName();
+                if (!name.endsWith(".class") || name.endsWith("module-info.class")) continue;
+
+                classNames.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+                classFiles.add(readBytes(jarFile.getInputStream(entry)));
+            }
+        } finally {
+            jarFile.close();
+        }
+    }
+
+    private static byte[] readBytes(InputStream in) throws Exception {
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            for (int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    @Benchmark
+    public int timerTaskTransformlet() throws Exception {
+        int transformed = 0;
+        for (int i = 0; i < classFiles.size(); i++) {
+            if (timerTaskTransformlet.doTransform(classNames.get(i), classFiles.get(i), loader) != null) transformed++;
+        }
+        return transformed;
+    }
+
+    @Benchmark
+    public int javassist_makeClass() throws Exception {
+        int count = 0;
+        for (byte[] classFile : classFiles) {
+            final ClassPool classPool = new ClassPool(true);
+            classPool.appendClassPath(new LoaderClassPath(loader));
+            if (!classPool.makeClass(new ByteArrayInputStream(classFile), false).isInterface()) count++;
+        }
+        return count;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TransformletBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
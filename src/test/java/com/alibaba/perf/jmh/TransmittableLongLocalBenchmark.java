@@ -0,0 +1,73 @@
+package com.alibaba.perf.jmh;
+
+import com.alibaba.ttl.TransmittableLongLocal;
+import com.alibaba.ttl.TransmittableThreadLocal;
+import com.alibaba.ttl.TransmittableThreadLocal.Transmitter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the id propagation by {@link TransmittableLongLocal} with {@code TransmittableThreadLocal<Long>}:
+ * set a new id, capture, then replay/restore in the worker context. Run with {@code -prof gc} to see the allocation.
+ *
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransmittableLongLocalBenchmark {
+    private final TransmittableLongLocal longLocal = new TransmittableLongLocal();
+    private final TransmittableThreadLocal<Long> boxedLocal = new TransmittableThreadLocal<Long>();
+
+    private long id = 1000;
+
+    @TearDown
+    public void tearDown() {
+        longLocal.remove();
+        boxedLocal.remove();
+    }
+
+    @Benchmark
+    public long longLocal_setCaptureReplay() {
+        longLocal.set(++id);
+        final Object backup = Transmitter.replay(Transmitter.capture());
+        final long value = longLocal.get();
+        Transmitter.restore(backup);
+        return value;
+    }
+
+    @Benchmark
+    public long boxedLocal_setCaptureReplay() {
+        boxedLocal.set(++id);
+        final Object backup = Transmitter.replay(Transmitter.capture());
+        final long value = boxedLocal.get();
+        Transmitter.restore(backup);
+        return value;
+    }
+
+    @Benchmark
+    public long longLocal_setGet() {
+        longLocal.set(++id);
+        return longLocal.get();
+    }
+
+    @Benchmark
+    public long boxedLocal_setGet() {
+        boxedLocal.set(++id);
+        return boxedLocal.get();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TransmittableLongLocalBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
@@ -0,0 +1,70 @@
+package com.alibaba.perf.jmh;
+
+import com.alibaba.ttl.TransmittableThreadLocal;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the read path of {@link TransmittableThreadLocal#get()} with {@link ThreadLocal#get()}.
+ * <p>
+ * {@link TransmittableThreadLocal#get()} without overridden {@code initialValue()} should be
+ * at parity with {@link ThreadLocal#get()}.
+ *
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransmittableThreadLocalGetBenchmark {
+    private final ThreadLocal<String> threadLocal = new ThreadLocal<String>();
+    private final InheritableThreadLocal<String> inheritableThreadLocal = new InheritableThreadLocal<String>();
+    private final TransmittableThreadLocal<String> ttl = new TransmittableThreadLocal<String>();
+    private final TransmittableThreadLocal<String> ttlWithInitialValue = new TransmittableThreadLocal<String>() {
+        @Override
+        protected String initialValue() {
+            return "initial";
+        }
+    };
+
+    @Setup
+    public void setup() {
+        threadLocal.set("value");
+        inheritableThreadLocal.set("value");
+        ttl.set("value");
+        ttlWithInitialValue.get();
+    }
+
+    @Benchmark
+    public String threadLocal_get() {
+        return threadLocal.get();
+    }
+
+    @Benchmark
+    public String inheritableThreadLocal_get() {
+        return inheritableThreadLocal.get();
+    }
+
+    @Benchmark
+    public String ttl_get() {
+        return ttl.get();
+    }
+
+    @Benchmark
+    public String ttl_withInitialValue_get() {
+        return ttlWithInitialValue.get();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TransmittableThreadLocalGetBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
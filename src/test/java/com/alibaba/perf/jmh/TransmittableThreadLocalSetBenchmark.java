@@ -0,0 +1,48 @@
+package com.alibaba.perf.jmh;
+
+import com.alibaba.ttl.TransmittableThreadLocal;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the write path of {@link TransmittableThreadLocal#set(Object)} with {@link ThreadLocal#set(Object)}.
+ *
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransmittableThreadLocalSetBenchmark {
+    private final ThreadLocal<String> threadLocal = new ThreadLocal<String>();
+    private final TransmittableThreadLocal<String> ttl = new TransmittableThreadLocal<String>();
+
+    @Benchmark
+    public void threadLocal_set() {
+        threadLocal.set("value");
+    }
+
+    @Benchmark
+    public void ttl_set() {
+        ttl.set("value");
+    }
+
+    @Benchmark
+    public void ttl_setAndRemove() {
+        ttl.set("value");
+        ttl.remove();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TransmittableThreadLocalSetBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
@@ -0,0 +1,84 @@
+package com.alibaba.perf.jmh;
+
+import com.alibaba.ttl.TransmittableThreadLocal;
+import com.alibaba.ttl.TransmittableThreadLocal.Transmitter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark {@link Transmitter#capture()}, {@link Transmitter#replay(Object)} and {@link Transmitter#restore(Object)}
+ * with the different count of {@link TransmittableThreadLocal}s holding value.
+ *
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransmitterBenchmark {
+    @Param({"1", "8", "64"})
+    public int ttlCount;
+
+    private TransmittableThreadLocal<String>[] ttls;
+    private Object captured;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        ttls = new TransmittableThreadLocal[ttlCount];
+        for (int i = 0; i < ttlCount; i++) {
+            ttls[i] = new TransmittableThreadLocal<String>();
+            ttls[i].set("captured-" + i);
+        }
+        captured = Transmitter.capture();
+
+        // the values of worker thread differ from the captured
+        for (int i = 0; i < ttlCount; i++) {
+            ttls[i].set("value-" + i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (TransmittableThreadLocal<String> ttl : ttls) {
+            ttl.remove();
+        }
+    }
+
+    /**
+     * capture without write in between, the captured is shared.
+     */
+    @Benchmark
+    public Object capture() {
+        return Transmitter.capture();
+    }
+
+    /**
+     * capture after a write, the captured is rebuilt.
+     */
+    @Benchmark
+    public Object setAndCapture() {
+        ttls[0].set("value-0");
+        return Transmitter.capture();
+    }
+
+    @Benchmark
+    public Object replayAndRestore() {
+        final Object backup = Transmitter.replay(captured);
+        Transmitter.restore(backup);
+        return backup;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TransmitterBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
@@ -0,0 +1,72 @@
+package com.alibaba.perf.jmh;
+
+import com.alibaba.ttl.TransmittableThreadLocal;
+import com.alibaba.ttl.TtlRunnable;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark {@link TtlRunnable#get(Runnable)} and {@link TtlRunnable#run()}
+ * with the different count of {@link TransmittableThreadLocal}s holding value.
+ *
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TtlRunnableBenchmark {
+    @Param({"1", "8", "64"})
+    public int ttlCount;
+
+    private TransmittableThreadLocal<String>[] ttls;
+
+    private final Runnable task = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        ttls = new TransmittableThreadLocal[ttlCount];
+        for (int i = 0; i < ttlCount; i++) {
+            ttls[i] = new TransmittableThreadLocal<String>();
+            ttls[i].set("value-" + i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (TransmittableThreadLocal<String> ttl : ttls) {
+            ttl.remove();
+        }
+    }
+
+    @Benchmark
+    public TtlRunnable get() {
+        return TtlRunnable.get(task);
+    }
+
+    @Benchmark
+    public void getAndRun(Blackhole blackhole) {
+        final TtlRunnable ttlRunnable = TtlRunnable.get(task);
+        ttlRunnable.run();
+        blackhole.consume(ttlRunnable);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TtlRunnableBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
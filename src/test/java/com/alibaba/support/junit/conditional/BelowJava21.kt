@@ -0,0 +1,10 @@
+package com.alibaba.support.junit.conditional
+
+import com.alibaba.support.junit.conditional.ConditionalIgnoreRule.IgnoreCondition
+
+/**
+ * @see [Getting Java version at runtime](https://stackoverflow.com/a/23706899/922688)
+ */
+class BelowJava21 : IgnoreCondition {
+    override fun isSatisfied(): Boolean = System.getProperty("java.specification.version").toDouble() < 21
+}
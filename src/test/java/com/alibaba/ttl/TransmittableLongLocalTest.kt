@@ -0,0 +1,122 @@
+package com.alibaba.ttl
+
+import com.alibaba.noTtlAgentRun
+import com.alibaba.ttl.TransmittableThreadLocal.Transmitter
+import org.junit.Assert.*
+import org.junit.Test
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+
+/**
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ */
+class TransmittableLongLocalTest {
+    @Test
+    fun test_setGetRemove() {
+        val longLocal = TransmittableLongLocal()
+        assertFalse(longLocal.isSet)
+        assertEquals(0L, longLocal.get())
+        assertEquals(-1L, longLocal.get(-1))
+
+        longLocal.set(42L)
+        assertTrue(longLocal.isSet)
+        assertEquals(42L, longLocal.get())
+
+        longLocal.remove()
+        assertFalse(longLocal.isSet)
+        assertEquals(-1L, longLocal.get(-1))
+
+        // the removed value is not captured
+        val captured = Transmitter.capture()
+        longLocal.set(7L)
+        Transmitter.runSupplierWithCaptured(captured) { assertFalse(longLocal.isSet) }
+        assertEquals(7L, longLocal.get())
+        longLocal.remove()
+    }
+
+    @Test
+    fun test_transmit() {
+        val longLocal = TransmittableLongLocal()
+        val intLocal = TransmittableIntLocal()
+        val ttl = TransmittableThreadLocal<String>()
+
+        val executor = Executors.newSingleThreadExecutor()
+        // create the worker thread before set, avoid inheritance
+        executor.submit {}.get()
+        try {
+            longLocal.set(Long.MAX_VALUE)
+            intLocal.set(-7)
+            ttl.set("parent")
+
+            val captured = Transmitter.capture()
+            // the value set after capture is not transmitted
+            longLocal.set(1L)
+
+            executor.submit {
+                Transmitter.runSupplierWithCaptured(captured) {
+                    assertEquals(Long.MAX_VALUE, longLocal.get())
+                    assertEquals(-7, intLocal.get())
+                    assertEquals("parent", ttl.get())
+
+                    // the value set in task is not leaked after restore
+                    longLocal.set(2L)
+                    intLocal.remove()
+                }
+            }.get()
+
+            // restored, no value in the worker thread; the executor is not enhanced unless TTL agent is loaded
+            if (noTtlAgentRun()) {
+                assertFalse(executor.submit(Callable { longLocal.isSet }).get())
+                assertFalse(executor.submit(Callable { intLocal.isSet }).get())
+            }
+            assertEquals(1L, longLocal.get())
+            assertEquals(-7, intLocal.get())
+        } finally {
+            executor.shutdown()
+            longLocal.remove()
+            intLocal.remove()
+            ttl.remove()
+        }
+    }
+
+    @Test
+    fun test_restoreWorkerValue() {
+        val longLocal = TransmittableLongLocal()
+        longLocal.set(1L)
+        val captured = Transmitter.capture()
+
+        longLocal.set(2L)
+        Transmitter.runSupplierWithCaptured(captured) {
+            assertEquals(1L, longLocal.get())
+            longLocal.remove()
+        }
+        assertEquals(2L, longLocal.get())
+
+        val backup = Transmitter.clear()
+        assertFalse(longLocal.isSet)
+        Transmitter.restore(backup)
+        assertEquals(2L, longLocal.get())
+        longLocal.remove()
+    }
+
+    @Test
+    fun test_inheritable() {
+        val longLocal = TransmittableLongLocal()
+        longLocal.set(1L)
+        try {
+            var childValue = 0L
+            val thread = Thread {
+                childValue = longLocal.get()
+                // the child thread has its own value
+                longLocal.set(2L)
+            }
+            thread.start()
+            thread.join()
+
+            assertEquals(1L, childValue)
+            assertEquals(1L, longLocal.get())
+        } finally {
+            longLocal.remove()
+        }
+    }
+}
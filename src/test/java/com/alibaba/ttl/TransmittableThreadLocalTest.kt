@@ -0,0 +1,629 @@
+package com.alibaba.ttl
+
+import com.alibaba.noTtlAgentRun
+import com.alibaba.support.junit.conditional.ConditionalIgnoreRule
+import com.alibaba.support.junit.conditional.ConditionalIgnoreRule.ConditionalIgnore
+import com.alibaba.support.junit.conditional.IsAgentRun
+import com.alibaba.ttl.TransmittableThreadLocal.TransmissionPolicy
+import com.alibaba.ttl.TransmittableThreadLocal.Transmitter
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ */
+class TransmittableThreadLocalTest {
+    @Rule
+    @JvmField
+    val rule = ConditionalIgnoreRule()
+
+    @Test
+    fun test_registerOnGet_onlyWhenInitialValueOverridden() {
+        val ttl = TransmittableThreadLocal<String>()
+        val ttlWithInitialValue = object : TransmittableThreadLocal<String>() {
+            override fun initialValue(): String = "initial"
+        }
+
+        // the value from initialValue is registered by get, so transmitted
+        assertEquals("initial", ttlWithInitialValue.get())
+        ttl.set("value")
+
+        val captured = Transmitter.capture()
+        val backup = Transmitter.clear()
+        try {
+            assertNull(ttl.get())
+
+            val replayBackup = Transmitter.replay(captured)
+            assertEquals("value", ttl.get())
+            assertEquals("initial", ttlWithInitialValue.get())
+            Transmitter.restore(replayBackup)
+        } finally {
+            Transmitter.restore(backup)
+        }
+
+        assertEquals("value", ttl.get())
+        assertEquals("initial", ttlWithInitialValue.get())
+    }
+
+    @Test
+    @ConditionalIgnore(condition = IsAgentRun::class)
+    fun test_capture_arrayBackedSnapshot() {
+        val backup = Transmitter.clear()
+        try {
+            val ttlList = (0 until 10).map { TransmittableThreadLocal<Int>().apply { set(it) } }
+            // null value is not captured
+            TransmittableThreadLocal<Int>().set(null)
+
+            val snapshot = Transmitter.capture() as TtlSnapshot
+            assertEquals(ttlList.size, snapshot.size())
+            assertEquals(snapshot.ttls.size, snapshot.values.size)
+            assertEquals(snapshot.ttls.sortedBy { it.slot }, snapshot.ttls.toList())
+            ttlList.forEach {
+                val index = snapshot.indexOf(it)
+                assertEquals(it.get(), snapshot.values[index])
+            }
+            assertFalse(snapshot.contains(TransmittableThreadLocal<Int>()))
+        } finally {
+            Transmitter.restore(backup)
+        }
+    }
+
+    @Test
+    fun test_capture_sharedWhenNothingChanged() {
+        val backup = Transmitter.clear()
+        try {
+            val ttl = TransmittableThreadLocal<String>()
+            ttl.set("v1")
+
+            val captured = Transmitter.capture()
+            assertSame(captured, Transmitter.capture())
+
+            // set invalidates the shared snapshot
+            ttl.set("v2")
+            val captured2 = Transmitter.capture()
+            assertNotSame(captured, captured2)
+            assertSame(captured2, Transmitter.capture())
+
+            // remove invalidates the shared snapshot
+            ttl.remove()
+            val captured3 = Transmitter.capture()
+            assertNotSame(captured2, captured3)
+            assertFalse(isCaptured(captured3, ttl))
+
+            // registering by get with initialValue invalidates the shared snapshot
+            val withInitial = object : TransmittableThreadLocal<String>() {
+                override fun initialValue(): String = "init"
+            }
+            withInitial.get()
+            val captured4 = Transmitter.capture()
+            assertNotSame(captured3, captured4)
+            assertTrue(isCaptured(captured4, withInitial))
+
+            // overridden copy need fresh copy for every capture
+            val copyTtl = object : TransmittableThreadLocal<String>() {
+                override fun copy(parentValue: String?): String? = parentValue + "-copy"
+            }
+            copyTtl.set("v")
+            assertNotSame(Transmitter.capture(), Transmitter.capture())
+        } finally {
+            Transmitter.restore(backup)
+        }
+    }
+
+    @Test
+    fun test_replay_fastPathWhenCurrentThreadHoldsCaptured() {
+        val backup = Transmitter.clear()
+        try {
+            val callbacks = mutableListOf<String>()
+            val ttl = object : TransmittableThreadLocal<String>() {
+                override fun beforeExecute() {
+                    callbacks.add("before")
+                }
+
+                override fun afterExecute() {
+                    callbacks.add("after")
+                }
+            }
+            ttl.set("parent")
+            val other = TransmittableThreadLocal<String>()
+
+            // nothing written by task, run in the thread holding the captured
+            val captured = Transmitter.capture()
+            TtlRunnable.get(Runnable { assertEquals("parent", ttl.get()) })!!.run()
+            assertEquals(listOf("before", "after"), callbacks)
+            assertEquals("parent", ttl.get())
+            // the captured is still shared
+            assertSame(captured, Transmitter.capture())
+
+            // task writes are reverted by restore
+            TtlRunnable.get(Runnable {
+                ttl.set("child")
+                other.set("child")
+            })!!.run()
+            assertEquals("parent", ttl.get())
+            assertNull(other.get())
+            assertFalse(isCaptured(Transmitter.capture(), other))
+        } finally {
+            Transmitter.restore(backup)
+        }
+    }
+
+    @Test
+    fun test_lazyCopy() {
+        val copyCount = AtomicInteger()
+        val ttl = object : TransmittableThreadLocal<String>(true) {
+            override fun copy(parentValue: String?): String? {
+                copyCount.incrementAndGet()
+                return "$parentValue-copy"
+            }
+        }
+        val executor = Executors.newSingleThreadExecutor()
+        // create the worker thread before set, avoid inheritance
+        executor.submit {}.get()
+        try {
+            ttl.set("parent")
+            val captured = Transmitter.capture()
+            assertEquals(0, copyCount.get())
+
+            // task not reading the value does not copy
+            executor.submit { Transmitter.runSupplierWithCaptured(captured) { "not read" } }.get()
+            assertEquals(0, copyCount.get())
+
+            executor.submit {
+                Transmitter.runSupplierWithCaptured(captured) {
+                    // the value not copied yet is kept by nested replay/restore
+                    Transmitter.runSupplierWithCaptured(Transmitter.capture()) { "not read" }
+                    assertEquals(0, copyCount.get())
+
+                    assertEquals("parent-copy", ttl.get())
+                    assertEquals("parent-copy", ttl.get())
+                    assertEquals(1, copyCount.get())
+                }
+            }.get()
+            // restored, no value in the worker thread; the executor is not enhanced unless TTL agent is loaded
+            if (noTtlAgentRun()) assertNull(executor.submit(Callable { ttl.get() }).get())
+
+            assertEquals("parent", ttl.get())
+            assertEquals(1, copyCount.get())
+        } finally {
+            executor.shutdown()
+            ttl.remove()
+        }
+    }
+
+    @Test
+    fun test_lazyCopy_captureAfterRead() {
+        val copyCount = AtomicInteger()
+        val ttl = object : TransmittableThreadLocal<String>(true) {
+            override fun copy(parentValue: String?): String? {
+                copyCount.incrementAndGet()
+                return "$parentValue-copy"
+            }
+        }
+
+        val backup = Transmitter.clear()
+        try {
+            ttl.set("parent")
+            val parent = ttl.get()
+            // the value not copied yet is shared by tasks, every task copies it at the first read
+            val captured = Transmitter.capture()
+            assertSame(captured, Transmitter.capture())
+
+            Transmitter.runSupplierWithCaptured(captured) {
+                val copied = ttl.get()
+                assertEquals("parent-copy", copied)
+                assertEquals(1, copyCount.get())
+                // the read installs the copy, the capture after read transmits the copy instead of the captured
+                val capturedAfterRead = Transmitter.capture()
+                assertNotSame(captured, capturedAfterRead)
+                Transmitter.runSupplierWithCaptured(capturedAfterRead) {
+                    assertEquals("parent-copy-copy", ttl.get())
+                }
+                assertEquals(2, copyCount.get())
+
+                // the nested task of the same captured copies its own, not the copy of the outer task
+                Transmitter.runSupplierWithCaptured(captured) {
+                    assertNotSame(copied, ttl.get())
+                    assertEquals("parent-copy", ttl.get())
+                }
+                assertEquals(3, copyCount.get())
+                assertSame(copied, ttl.get())
+            }
+            // the read in task does not invalidate the captured of the thread submitting the task
+            assertSame(parent, ttl.get())
+            assertSame(captured, Transmitter.capture())
+            assertEquals(3, copyCount.get())
+        } finally {
+            Transmitter.restore(backup)
+        }
+    }
+
+    @Test
+    fun test_lazyCopy_nestedSubmission() {
+        listOf(true, false).forEach { lazyCopy ->
+            val ttl = object : TransmittableThreadLocal<MutableList<String>>(lazyCopy) {
+                override fun copy(parentValue: MutableList<String>?): MutableList<String>? = parentValue?.toMutableList()
+            }
+            val executor = Executors.newSingleThreadExecutor()
+            val nestedExecutor = Executors.newSingleThreadExecutor()
+            // create the worker threads before set, avoid inheritance
+            executor.submit {}.get()
+            nestedExecutor.submit {}.get()
+            try {
+                ttl.set(mutableListOf("a"))
+
+                val nestedSeen = executor.submit(TtlCallable.get {
+                    // modify the copy of task, then submit the nested task
+                    ttl.get()!!.add("b")
+                    nestedExecutor.submit(TtlCallable.get { ttl.get()!!.toList() }).get()
+                }).get()
+
+                // the nested task sees the modified copy of the task, same as the eager copy
+                assertEquals("lazyCopy=$lazyCopy", listOf("a", "b"), nestedSeen)
+                assertEquals(listOf("a"), ttl.get())
+            } finally {
+                executor.shutdown()
+                nestedExecutor.shutdown()
+                ttl.remove()
+            }
+        }
+    }
+
+    @Test
+    fun test_transmissionPolicy() {
+        val backup = Transmitter.clear()
+        try {
+            TransmissionPolicy.values().forEach { policy ->
+                val inheritable = policy == TransmissionPolicy.INHERIT_AND_TRANSMIT || policy == TransmissionPolicy.INHERIT_ONLY
+                val transmittable = policy == TransmissionPolicy.INHERIT_AND_TRANSMIT || policy == TransmissionPolicy.TRANSMIT_ONLY
+                val ttl = TransmittableThreadLocal<String>(policy)
+                ttl.set("parent")
+
+                val captured = Transmitter.capture()
+                assertEquals(policy.name, transmittable, isCaptured(captured, ttl))
+
+                var childValue: String? = null
+                var childCaptured = false
+                val thread = Thread {
+                    childValue = ttl.get()
+                    childCaptured = isCaptured(Transmitter.capture(), ttl)
+                }
+                thread.start()
+                thread.join()
+                assertEquals(policy.name, if (inheritable) "parent" else null, childValue)
+                assertEquals(policy.name, inheritable && transmittable, childCaptured)
+
+                // the value not transmitted is not touched by replay/restore
+                Transmitter.runSupplierWithCaptured(emptyCaptured()) {
+                    assertEquals(policy.name, if (transmittable) null else "parent", ttl.get())
+                }
+                assertEquals("parent", ttl.get())
+
+                ttl.remove()
+                assertNull(ttl.get())
+            }
+        } finally {
+            Transmitter.restore(backup)
+        }
+    }
+
+    @Test
+    @ConditionalIgnore(condition = IsAgentRun::class)
+    fun test_replay_journal() {
+        val backup = Transmitter.clear()
+        try {
+            val captured1 = TransmittableThreadLocal<String>()
+            val captured2 = TransmittableThreadLocal<String>()
+            val workerOnly = TransmittableThreadLocal<String>()
+            val both = TransmittableThreadLocal<String>()
+
+            captured1.set("c1")
+            captured2.set("c2")
+            both.set("captured")
+            val captured = Transmitter.capture()
+            Transmitter.clear()
+
+            // empty worker context, journal records the captured only
+            val frame = Transmitter.replayBackup(captured)
+            val journal = frame.registry.journal()
+            assertEquals(3, frame.end - frame.base)
+            (frame.base until frame.end).forEach { assertSame(TtlJournal.ABSENT, journal.values[it]) }
+            assertEquals("c1", captured1.get())
+            Transmitter.restoreBackup(frame)
+            assertEquals(0, (Transmitter.capture() as TtlSnapshot).size())
+            assertNull(captured1.get())
+
+            // worker context has its own values, and the task writes
+            workerOnly.set("worker")
+            both.set("worker")
+            val frame2 = Transmitter.replayBackup(captured)
+            val records = journal.ttls.slice(frame2.base until frame2.end)
+            assertEquals(4, records.size)
+            assertEquals(records.sortedBy { it.slot }, records)
+            assertNull(workerOnly.get())
+            assertEquals("captured", both.get())
+
+            val newInTask = TransmittableThreadLocal<String>()
+            newInTask.set("task")
+            captured2.remove()
+            both.set("task")
+            Transmitter.restoreBackup(frame2)
+
+            assertEquals("worker", workerOnly.get())
+            assertEquals("worker", both.get())
+            assertNull(captured1.get())
+            assertNull(captured2.get())
+            assertNull(newInTask.get())
+            val snapshot = Transmitter.capture() as TtlSnapshot
+            assertEquals(setOf(workerOnly, both), snapshot.ttls.toSet())
+        } finally {
+            Transmitter.restore(backup)
+        }
+    }
+
+    @Test
+    @ConditionalIgnore(condition = IsAgentRun::class)
+    fun test_replay_reuseBackupBuffer() {
+        val backup = Transmitter.clear()
+        try {
+            val ttl = TransmittableThreadLocal<String>()
+            val other = TransmittableThreadLocal<String>()
+            ttl.set("captured")
+            val captured = Transmitter.capture()
+            ttl.set("worker")
+
+            val backup1 = Transmitter.replayBackup(captured)
+            val journal = backup1.registry.journal()
+            val base = backup1.base
+            assertEquals(base + 1, backup1.end)
+            Transmitter.restoreBackup(backup1)
+            // journal stack is popped after restore, not referencing the values
+            assertEquals(base, journal.size)
+            assertNull(journal.values[base])
+            assertEquals("worker", ttl.get())
+
+            // steady state, the same backup and buffer
+            val backup2 = Transmitter.replayBackup(captured)
+            assertSame(backup1, backup2)
+            assertSame(journal, backup2.registry.journal())
+            assertEquals("captured", ttl.get())
+
+            // nested replay pushes on the journal stack
+            other.set("task")
+            val nested = Transmitter.replayBackup(Transmitter.capture())
+            assertNotSame(backup2, nested)
+            assertEquals(backup2.end, nested.base)
+            ttl.set("nested")
+            Transmitter.restoreBackup(nested)
+            assertEquals("captured", ttl.get())
+            assertEquals("task", other.get())
+
+            Transmitter.restoreBackup(backup2)
+            assertEquals("worker", ttl.get())
+            assertNull(other.get())
+
+            try {
+                Transmitter.restoreBackup(backup2)
+                fail()
+            } catch (e: IllegalStateException) {
+                assertTrue(e.message!!.contains("restored already"))
+            }
+
+            // the backup of the public replay is not pooled, the replays not restored hold nothing
+            val registry = backup1.registry
+            val frameDepth = registry.frameDepth()
+            repeat(1000) { Transmitter.replay(captured) }
+            assertEquals(frameDepth, registry.frameDepth())
+            assertEquals(base, journal.size)
+        } finally {
+            Transmitter.restore(backup)
+        }
+    }
+
+    @Test
+    fun test_replay_backupOwnedByCaller() {
+        val backup = Transmitter.clear()
+        try {
+            val ttl = TransmittableThreadLocal<String>()
+            ttl.set("captured")
+            val captured = Transmitter.capture()
+            ttl.set("worker")
+
+            val backup1 = Transmitter.replay(captured)
+            assertEquals("captured", ttl.get())
+            Transmitter.restore(backup1)
+            assertEquals("worker", ttl.get())
+
+            // restore again restores the same values
+            ttl.set("changed")
+            Transmitter.restore(backup1)
+            assertEquals("worker", ttl.get())
+
+            // the backup kept is not reused by the later replays
+            ttl.set("other")
+            val backup2 = Transmitter.replay(captured)
+            assertEquals("captured", ttl.get())
+            Transmitter.restore(backup2)
+            assertEquals("other", ttl.get())
+            Transmitter.restore(backup1)
+            assertEquals("worker", ttl.get())
+        } finally {
+            Transmitter.restore(backup)
+        }
+    }
+
+    @Test
+    @ConditionalIgnore(condition = IsAgentRun::class)
+    fun test_replay_skipHoldingCaptured() {
+        val backup = Transmitter.clear()
+        try {
+            val same = TransmittableThreadLocal<String>()
+            val sameLong = TransmittableLongLocal()
+            val changed = TransmittableThreadLocal<String>()
+            same.set("same")
+            sameLong.set(42)
+            changed.set("captured")
+            val captured = Transmitter.capture()
+            changed.set("worker")
+
+            // only the differing TTL is recorded
+            val frame = Transmitter.replayBackup(captured)
+            assertEquals(1, frame.end - frame.base)
+            assertSame(changed, frame.registry.journal().ttls[frame.base])
+            assertEquals("captured", changed.get())
+            Transmitter.restoreBackup(frame)
+            assertEquals("same", same.get())
+            assertEquals(42L, sameLong.get())
+            assertEquals("worker", changed.get())
+
+            // the task writes the TTLs not recorded
+            val frame2 = Transmitter.replayBackup(captured)
+            same.remove()
+            sameLong.set(1)
+            changed.remove()
+            Transmitter.restoreBackup(frame2)
+            assertEquals("same", same.get())
+            assertEquals(42L, sameLong.get())
+            assertEquals("worker", changed.get())
+            assertEquals(3, (Transmitter.capture() as TtlSnapshot).size())
+        } finally {
+            Transmitter.restore(backup)
+        }
+    }
+
+    @Test
+    @ConditionalIgnore(condition = IsAgentRun::class)
+    fun test_replay_deepNesting() {
+        val backup = Transmitter.clear()
+        try {
+            val depth = 150
+            val level = TransmittableThreadLocal<Int>()
+            val written = TransmittableThreadLocal<String>()
+            val perLevel = Array(depth) { TransmittableThreadLocal<String>() }
+            val probe = Transmitter.replayBackup(TtlSnapshot.EMPTY)
+            val registry = probe.registry
+            Transmitter.restoreBackup(probe)
+            val frameDepth = registry.frameDepth()
+            val journalSize = registry.journal().size
+
+            fun runNested(n: Int) {
+                if (n == depth) {
+                    // the frames beyond the max depth are not pooled
+                    assertEquals(TtlRegistry.MAX_FRAMES_DEPTH, registry.frameDepth())
+                    return
+                }
+                level.set(n)
+                perLevel[n].set("level-$n")
+                val task = TtlRunnable.get {
+                    assertEquals(n, level.get())
+                    assertEquals("level-$n", perLevel[n].get())
+                    assertNull(written.get())
+                    runNested(n + 1)
+                }!!
+                // written after capture, so the nested replay is not the fast path
+                written.set("written-$n")
+                task.run()
+                // the values of this level are restored after the nested runs
+                assertEquals(n, level.get())
+                assertEquals("level-$n", perLevel[n].get())
+                assertEquals("written-$n", written.get())
+                (n + 1 until depth).forEach { assertNull(perLevel[it].get()) }
+            }
+            runNested(0)
+
+            assertEquals(0, level.get())
+            assertEquals(frameDepth, registry.frameDepth())
+            assertEquals(journalSize, registry.journal().size)
+        } finally {
+            Transmitter.restore(backup)
+        }
+    }
+
+    @Test
+    fun test_replayFrame() {
+        val backup = Transmitter.clear()
+        try {
+            val ttl = TransmittableThreadLocal<String>()
+            ttl.set("captured")
+            val captured = Transmitter.capture()
+            ttl.set("worker")
+
+            val frame = Transmitter.replayFrame(captured)
+            try {
+                assertEquals("captured", ttl.get())
+
+                // nested frame
+                val nested = Transmitter.replayFrame(emptyCaptured())
+                try {
+                    assertNull(ttl.get())
+                } finally {
+                    nested.close()
+                }
+                assertEquals("captured", ttl.get())
+            } finally {
+                frame.close()
+            }
+            assertEquals("worker", ttl.get())
+
+            // the frame is pooled
+            val reused = Transmitter.replayFrame(captured)
+            assertSame(frame, reused)
+            reused.close()
+
+            try {
+                frame.close()
+                fail()
+            } catch (e: IllegalStateException) {
+                assertTrue(e.message!!.contains("restored already"))
+            }
+
+            // closed in the other thread
+            val otherFrame = Transmitter.replayFrame(captured)
+            var error: Throwable? = null
+            val thread = Thread {
+                try {
+                    otherFrame.close()
+                } catch (e: Throwable) {
+                    error = e
+                }
+            }
+            thread.start()
+            thread.join()
+            assertTrue(error is IllegalStateException)
+            otherFrame.close()
+            assertEquals("worker", ttl.get())
+        } finally {
+            Transmitter.restore(backup)
+        }
+    }
+
+    /**
+     * whether the value of [ttl] is captured: replay the captured after the value changed in the current thread.
+     */
+    private fun <T> isCaptured(captured: Any, ttl: TransmittableThreadLocal<T>): Boolean {
+        val value = ttl.get() ?: return false
+        @Suppress("UNCHECKED_CAST")
+        ttl.set(Any() as T)
+        try {
+            return Transmitter.runSupplierWithCaptured(captured) { ttl.get() } === value
+        } finally {
+            ttl.set(value)
+        }
+    }
+
+    /**
+     * the captured of nothing.
+     */
+    private fun emptyCaptured(): Any {
+        val backup = Transmitter.clear()
+        try {
+            return Transmitter.capture()
+        } finally {
+            Transmitter.restore(backup)
+        }
+    }
+}
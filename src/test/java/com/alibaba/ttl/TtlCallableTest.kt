@@ -168,6 +168,51 @@ class TtlCallableTest {
         assertThat(callList[3], instanceOf(TtlCallable::class.java))
     }
 
+    @Test
+    fun test_gets_captureOnce() {
+        val backup = TransmittableThreadLocal.Transmitter.clear()
+        try {
+            val ttl = TransmittableThreadLocal<String>()
+            ttl.set("parent")
+
+            val callList = TtlCallable.gets(Arrays.asList<Callable<String>>(Call("1"), Call("2"), Call("3")))
+            val captured = capturedOf(callList[0])
+            callList.forEach { assertSame(captured, capturedOf(it)) }
+
+            // every task need its own copy when copy is overridden
+            var copyCount = 0
+            val copyTtl = object : TransmittableThreadLocal<String>() {
+                override fun copy(parentValue: String?): String? {
+                    copyCount++
+                    return parentValue
+                }
+            }
+            copyTtl.set("parent")
+            val copied = TtlCallable.gets(Arrays.asList<Callable<String>>(Call("1"), Call("2"), Call("3")))
+            assertEquals(3, copyCount)
+            assertEquals(3, copied.map { capturedOf(it) }.toSet().size)
+        } finally {
+            TransmittableThreadLocal.Transmitter.restore(backup)
+        }
+    }
+
+    private fun capturedOf(task: Any?): Any? =
+            TtlCallable::class.java.getDeclaredField("captured").apply { isAccessible = true }.get(task)
+
+    @Test
+    fun test_getForNewThread() {
+        assertNull(TtlCallable.getForNewThread<String>(null))
+
+        val callable = Callable { "hello" }
+        val task = TtlCallable.getForNewThread(callable)!!
+        assertSame(task, TtlCallable.getForNewThread(task))
+        assertSame(task, TtlCallable.get(task, false, true))
+        assertSame(task, TtlCallable.gets(listOf(task), false, true)[0])
+
+        assertSame(callable, TtlCallable.unwrap(task))
+        assertEquals(listOf(callable, callable), TtlCallable.unwraps(listOf(task, callable)))
+    }
+
     @Test
     fun test_unwrap() {
         assertNull(TtlCallable.unwrap<String>(null))
@@ -0,0 +1,173 @@
+package com.alibaba.ttl
+
+import com.alibaba.noTtlAgentRun
+import com.alibaba.support.junit.conditional.BelowJava9
+import com.alibaba.support.junit.conditional.ConditionalIgnoreRule
+import com.alibaba.support.junit.conditional.ConditionalIgnoreRule.ConditionalIgnore
+import com.alibaba.ttl.TransmittableThreadLocal.Transmitter
+import org.hamcrest.CoreMatchers.instanceOf
+import org.junit.*
+import org.junit.Assert.*
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.Function
+import java.util.function.Supplier
+
+/**
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ */
+class TtlCompletableFutureTest {
+    @Rule
+    @JvmField
+    val rule = ConditionalIgnoreRule()
+
+    private lateinit var backup: Any
+
+    @Before
+    fun setUp() {
+        backup = Transmitter.clear()
+    }
+
+    @After
+    fun tearDown() {
+        Transmitter.restore(backup)
+    }
+
+    @Test
+    fun test_supplyAsync() {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set("parent")
+
+        assertEquals("parent", TtlCompletableFuture.supplyAsync(Supplier { ttl.get() }, executorService).get())
+        assertEquals("parent", TtlCompletableFuture.supplyAsync(Supplier { ttl.get() }).get())
+
+        var value: String? = null
+        TtlCompletableFuture.runAsync(Runnable { value = ttl.get() }, executorService).get()
+        assertEquals("parent", value)
+
+        // the worker thread is restored, the executor is not enhanced unless TTL agent is loaded
+        if (noTtlAgentRun()) assertNull(executorService.submit<String> { ttl.get() }.get())
+    }
+
+    @Test
+    fun test_asyncStage_capturedAtCreation() {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set("v1")
+        val source = TtlCompletableFuture<String>()
+        val stage = source.thenApplyAsync { "$it-${ttl.get()}" }
+        val composed = source.thenComposeAsync { TtlCompletableFuture.completedFuture("$it-${ttl.get()}") }
+        val handled = source.handleAsync { v, _ -> "$v-${ttl.get()}" }
+
+        // completed by the thread with the other value
+        ttl.set("v2")
+        source.complete("x")
+
+        assertEquals("x-v1", stage.get())
+        assertEquals("x-v1", composed.get())
+        assertEquals("x-v1", handled.get())
+    }
+
+    @Test
+    fun test_asyncStage_captureShared() {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set("parent")
+        val captured = Transmitter.capture()
+
+        // no fresh capture per stage when the values are not changed,
+        // and the stage created in async stage shares the captured too
+        val inStage = TtlCompletableFuture.completedFuture("x").thenApplyAsync { Transmitter.capture() }.get()
+        assertSame(captured, inStage)
+        assertSame(captured, Transmitter.capture())
+    }
+
+    @Test
+    fun test_captureOnce() {
+        val copyCount = AtomicInteger()
+        val ttl = object : TransmittableThreadLocal<String>() {
+            override fun copy(parentValue: String?): String? {
+                copyCount.incrementAndGet()
+                return parentValue
+            }
+        }
+        ttl.set("parent")
+
+        // count before get, under TTL agent the waiter of blocking get is ForkJoinTask capturing too
+        val future = TtlCompletableFuture.supplyAsync(Supplier { ttl.get() })
+        assertEquals(1, copyCount.getAndSet(0))
+        assertEquals("parent", future.get())
+        copyCount.set(0)
+        val future2 = TtlCompletableFuture.supplyAsync(Supplier { ttl.get() }, executorService)
+        assertEquals(1, copyCount.getAndSet(0))
+        assertEquals("parent", future2.get())
+        copyCount.set(0)
+
+        val source = TtlCompletableFuture<String>()
+        val stage = source.thenApplyAsync { "$it-${ttl.get()}" }
+        source.complete("x")
+        // under TTL agent, the ForkJoinTask of stage also captures at creation, unused by the thread-per-task fallback
+        if (noTtlAgentRun() || ForkJoinPool.getCommonPoolParallelism() > 1) assertEquals(1, copyCount.get())
+        assertEquals("x-parent", stage.get())
+    }
+
+    @Test
+    fun test_defaultExecutor_reused() {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set("v1")
+        val future = TtlCompletableFuture<String>()
+
+        val executor = future.defaultExecutor()
+        assertSame(executor, future.defaultExecutor())
+        ttl.set("v2")
+        // the common pool enhanced by TTL agent is returned as is
+        if (executor !is ForkJoinPool) assertNotSame(executor, future.defaultExecutor())
+    }
+
+    @Test
+    fun test_exception() {
+        val error = IllegalStateException("biz")
+        try {
+            TtlCompletableFuture.supplyAsync(Supplier<String> { throw error }, executorService).get()
+            fail()
+        } catch (e: ExecutionException) {
+            assertSame(error, e.cause)
+        }
+    }
+
+    @Test
+    @ConditionalIgnore(condition = BelowJava9::class)
+    fun test_chain_java9() {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set("v1")
+        val source = TtlCompletableFuture<String>()
+        val chain = source.thenApply(Function<String, String> { it })
+        assertThat(chain, instanceOf(TtlCompletableFuture::class.java))
+        val stage = chain.thenApplyAsync { "$it-${ttl.get()}" }
+
+        ttl.set("v2")
+        source.complete("x")
+        assertEquals("x-v1", stage.get())
+    }
+
+    companion object {
+        private val executorService = Executors.newFixedThreadPool(1)
+
+        @BeforeClass
+        @JvmStatic
+        @Suppress("unused")
+        fun beforeClass() {
+            // create the worker thread before any value set, no inheritance
+            executorService.submit { }.get()
+        }
+
+        @AfterClass
+        @JvmStatic
+        @Suppress("unused")
+        fun afterClass() {
+            executorService.shutdown()
+            assertTrue("Fail to shutdown thread pool", executorService.awaitTermination(100, TimeUnit.MILLISECONDS))
+        }
+    }
+}
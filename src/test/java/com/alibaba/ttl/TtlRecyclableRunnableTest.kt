@@ -0,0 +1,164 @@
+package com.alibaba.ttl
+
+import org.junit.AfterClass
+import org.junit.Assert.*
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ */
+class TtlRecyclableRunnableTest {
+    @Test
+    fun test_rebind_reuse() {
+        val ttl = TransmittableThreadLocal<String>()
+        val seen = mutableListOf<String?>()
+        val wrapper = TtlRecyclableRunnable.get(Runnable { seen.add(ttl.get()) })!!
+        assertFalse(wrapper.isBound)
+
+        for (i in 0 until 3) {
+            ttl.set("value-$i")
+            val future = executorService.submit(wrapper.rebind())
+            future.get()
+        }
+        assertEquals(listOf("value-0", "value-1", "value-2"), seen)
+        ttl.remove()
+    }
+
+    @Test
+    fun test_rebind_sharedCapture() {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set("shared")
+        val captured = TransmittableThreadLocal.Transmitter.capture()
+        ttl.set("changed")
+
+        var value: String? = null
+        val wrapper = TtlRecyclableRunnable.get(Runnable { value = ttl.get() })!!
+        executorService.submit(wrapper.rebind(captured)).get()
+        assertEquals("shared", value)
+        ttl.remove()
+    }
+
+    @Test
+    fun test_execute() {
+        // the TtlEnhanced task is kept as is by the executors enhanced by TTL agent
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set("parent")
+        val latch = CountDownLatch(2)
+        val wrapper = TtlRecyclableRunnable.get(Runnable {
+            assertEquals("parent", ttl.get())
+            latch.countDown()
+        })!!
+
+        executorService.execute(wrapper.rebind())
+        latch.await(1, TimeUnit.SECONDS)
+        scheduledExecutorService.execute(wrapper.rebind())
+        assertTrue(latch.await(1, TimeUnit.SECONDS))
+        ttl.remove()
+    }
+
+    @Test
+    fun test_releaseAfterRun() {
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set("parent")
+        var count = 0
+        val wrapper = TtlRecyclableRunnable.get(Runnable { count++ }, true)!!
+
+        wrapper.rebind().run()
+        assertFalse(wrapper.isBound)
+        try {
+            wrapper.run()
+            fail()
+        } catch (e: IllegalStateException) {
+            assertTrue(e.message!!.contains("released after run"))
+        }
+
+        // rebound, run again
+        wrapper.rebind().run()
+        assertEquals(2, count)
+        ttl.remove()
+    }
+
+    @Test
+    fun test_reset() {
+        val wrapper = TtlRecyclableRunnable.get(Runnable { })!!
+
+        // not bound
+        try {
+            wrapper.run()
+            fail()
+        } catch (e: IllegalStateException) {
+            assertTrue(e.message!!.contains("not bound"))
+        }
+
+        // kept after run without release
+        wrapper.rebind()
+        wrapper.run()
+        wrapper.run()
+        assertTrue(wrapper.isBound)
+
+        wrapper.reset()
+        assertFalse(wrapper.isBound)
+    }
+
+    @Test
+    fun test_get() {
+        assertNull(TtlRecyclableRunnable.get(null))
+
+        val task = Runnable { }
+        val wrapper = TtlRecyclableRunnable.get(task)!!
+        assertSame(task, wrapper.runnable)
+        assertEquals(TtlRecyclableRunnable.get(task), wrapper)
+
+        try {
+            TtlRecyclableRunnable.get(wrapper)
+            fail()
+        } catch (e: IllegalStateException) {
+            assertTrue(e.message!!.contains("Already TtlEnhanced"))
+        }
+    }
+
+    @Test
+    fun test_idempotent() {
+        val task = Runnable { }
+        val wrapper = TtlRecyclableRunnable.get(task)!!
+
+        assertSame(wrapper, TtlRunnable.get(wrapper, false, true))
+        val wrappers = TtlRunnable.gets(listOf(wrapper, task), false, true)
+        assertSame(wrapper, wrappers[0])
+        assertSame(task, TtlRunnable.unwrap(wrappers[1]))
+
+        try {
+            TtlRunnable.get(wrapper)
+            fail()
+        } catch (e: IllegalStateException) {
+            assertTrue(e.message!!.contains("Already TtlRunnable"))
+        }
+    }
+
+    @Test
+    fun test_unwrap() {
+        val task = Runnable { }
+        val wrapper = TtlRecyclableRunnable.get(task)!!
+
+        assertSame(task, TtlRunnable.unwrap(wrapper))
+        assertEquals(listOf(task, task), TtlRunnable.unwraps(listOf(wrapper, task)))
+    }
+
+    companion object {
+        private val executorService = Executors.newFixedThreadPool(1)
+        private val scheduledExecutorService = Executors.newScheduledThreadPool(1)
+
+        @AfterClass
+        @JvmStatic
+        @Suppress("unused")
+        fun afterClass() {
+            executorService.shutdown()
+            scheduledExecutorService.shutdown()
+            assertTrue("Fail to shutdown thread pool", executorService.awaitTermination(100, TimeUnit.MILLISECONDS))
+            assertTrue("Fail to shutdown thread pool", scheduledExecutorService.awaitTermination(100, TimeUnit.MILLISECONDS))
+        }
+    }
+}
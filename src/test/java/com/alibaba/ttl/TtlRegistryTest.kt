@@ -0,0 +1,210 @@
+package com.alibaba.ttl
+
+import com.alibaba.support.junit.conditional.ConditionalIgnoreRule
+import com.alibaba.support.junit.conditional.ConditionalIgnoreRule.ConditionalIgnore
+import com.alibaba.support.junit.conditional.IsAgentRun
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+
+/**
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ */
+class TtlRegistryTest {
+    @Rule
+    @JvmField
+    val rule = ConditionalIgnoreRule()
+
+    @Test
+    @ConditionalIgnore(condition = IsAgentRun::class)
+    fun test_add_remove_contains() {
+        val registry = TtlRegistry()
+        val ttl1 = TransmittableThreadLocal<String>()
+        val ttl2 = TransmittableThreadLocal<String>()
+
+        assertFalse(registry.contains(ttl1))
+
+        registry.add(ttl1)
+        registry.add(ttl1)
+        assertTrue(registry.contains(ttl1))
+        assertFalse(registry.contains(ttl2))
+        assertEquals(1, registry.size())
+
+        registry.add(ttl2)
+        assertEquals(2, registry.size())
+
+        registry.remove(ttl1)
+        registry.remove(ttl1)
+        assertFalse(registry.contains(ttl1))
+        assertTrue(registry.contains(ttl2))
+        assertEquals(1, registry.size())
+    }
+
+    @Test
+    @ConditionalIgnore(condition = IsAgentRun::class)
+    fun test_callback() {
+        val registry = TtlRegistry()
+        val ttl = TransmittableThreadLocal<String>()
+        val callbackTtl = object : TransmittableThreadLocal<String>() {
+            override fun afterExecute() {
+            }
+        }
+        assertFalse(ttl.callbackOverridden)
+        assertTrue(callbackTtl.callbackOverridden)
+
+        registry.add(ttl)
+        assertFalse(registry.hasCallback())
+        assertNull(registry.nextCallbackFrom(0))
+
+        registry.add(callbackTtl)
+        assertTrue(registry.hasCallback())
+        assertSame(callbackTtl, registry.nextCallbackFrom(0))
+        assertNull(registry.nextCallbackFrom(callbackTtl.slot + 1))
+        assertTrue(registry.copy().hasCallback())
+
+        registry.remove(callbackTtl)
+        assertFalse(registry.hasCallback())
+        assertNull(registry.nextCallbackFrom(0))
+    }
+
+    @Test
+    @ConditionalIgnore(condition = IsAgentRun::class)
+    fun test_iterate_with_remove() {
+        val registry = TtlRegistry()
+        // more than one word of the bit set
+        val ttlList = (0 until 200).map { TransmittableThreadLocal<Int>() }
+        ttlList.forEach { registry.add(it) }
+
+        val iterated = mutableListOf<TransmittableThreadLocal<*>>()
+        var ttl = registry.nextFrom(0)
+        while (ttl != null) {
+            iterated.add(ttl)
+            if (ttl.slot % 2 == 0) registry.remove(ttl)
+            ttl = registry.nextFrom(ttl.slot + 1)
+        }
+        assertEquals(ttlList.toSet(), iterated.toSet())
+
+        ttlList.forEach { assertEquals(it.slot % 2 != 0, registry.contains(it)) }
+        assertEquals(100, registry.size())
+    }
+
+    @Test
+    @ConditionalIgnore(condition = IsAgentRun::class)
+    fun test_copy() {
+        val registry = TtlRegistry()
+        val ttl1 = TransmittableThreadLocal<String>()
+        val ttl2 = TransmittableThreadLocal<String>()
+        registry.add(ttl1)
+
+        val copy = registry.copy()
+        copy.add(ttl2)
+        copy.remove(ttl1)
+
+        assertTrue(registry.contains(ttl1))
+        assertFalse(registry.contains(ttl2))
+        assertFalse(copy.contains(ttl1))
+        assertTrue(copy.contains(ttl2))
+    }
+
+    @Test
+    @ConditionalIgnore(condition = IsAgentRun::class)
+    fun test_copy_sharedUntilWrite() {
+        val registry = TtlRegistry()
+        val ttlList = (0 until 100).map { TransmittableThreadLocal<String>(true) }
+        ttlList.forEach { registry.add(it) }
+        registry.setPendingCopy(ttlList[0].slot, true)
+
+        val copy = registry.copy()
+        assertSame(refsOf(registry), refsOf(copy))
+        assertEquals(ttlList.toSet(), iterate(copy).toSet())
+        assertTrue(copy.isPendingCopy(ttlList[0].slot))
+
+        // the write of child does not change the parent
+        copy.setPendingCopy(ttlList[0].slot, false)
+        copy.remove(ttlList[1])
+        assertNotSame(refsOf(registry), refsOf(copy))
+        assertTrue(registry.isPendingCopy(ttlList[0].slot))
+        assertTrue(registry.contains(ttlList[1]))
+        assertEquals(100, registry.size())
+        assertEquals(99, copy.size())
+
+        // the write of parent does not change the child either
+        val copy2 = registry.copy()
+        val ttl = TransmittableThreadLocal<String>()
+        registry.add(ttl)
+        registry.remove(ttlList[2])
+        assertFalse(copy2.contains(ttl))
+        assertTrue(copy2.contains(ttlList[2]))
+        assertEquals(100, copy2.size())
+    }
+
+    @Test
+    @ConditionalIgnore(condition = IsAgentRun::class)
+    fun test_copy_nonInheritable() {
+        val registry = TtlRegistry()
+        val ttl = TransmittableThreadLocal<String>()
+        val transmitOnly = TransmittableThreadLocal<String>(TransmittableThreadLocal.TransmissionPolicy.TRANSMIT_ONLY)
+        registry.add(ttl)
+        registry.add(transmitOnly)
+
+        val copy = registry.copy()
+        assertTrue(copy.contains(ttl))
+        assertFalse(copy.contains(transmitOnly))
+        assertTrue(registry.contains(transmitOnly))
+
+        // shared again after the non-inheritable one is removed
+        registry.remove(transmitOnly)
+        assertSame(refsOf(registry), refsOf(registry.copy()))
+    }
+
+    @Test
+    @ConditionalIgnore(condition = IsAgentRun::class)
+    fun test_slot_reclaimed_after_gc() {
+        val registry = TtlRegistry()
+        var ttl: TransmittableThreadLocal<String>? = TransmittableThreadLocal()
+        val slot = ttl!!.slot
+        registry.add(ttl)
+        @Suppress("UNUSED_VALUE")
+        ttl = null
+
+        // the slot of collected TransmittableThreadLocal is reused by new instance,
+        // hold the new instances so as to consume the smaller free slots
+        val holdList = mutableListOf<TransmittableThreadLocal<String>>()
+        var reused: TransmittableThreadLocal<String>? = null
+        for (i in 0 until 100_000) {
+            if (i % 1000 == 0) {
+                System.gc()
+                Thread.sleep(10)
+            }
+            val newTtl = TransmittableThreadLocal<String>()
+            if (newTtl.slot == slot) {
+                reused = newTtl
+                break
+            }
+            holdList.add(newTtl)
+        }
+        assertNotNull("slot $slot is not reclaimed", reused)
+
+        // the stale reference in registry does not mean the new instance is registered
+        assertFalse(registry.contains(reused!!))
+        assertNull(registry.nextFrom(0))
+        assertEquals(0, registry.size())
+
+        registry.add(reused)
+        assertTrue(registry.contains(reused))
+        assertEquals(1, registry.size())
+    }
+
+    private fun iterate(registry: TtlRegistry): List<TransmittableThreadLocal<*>> {
+        val list = mutableListOf<TransmittableThreadLocal<*>>()
+        var ttl = registry.nextFrom(0)
+        while (ttl != null) {
+            list.add(ttl)
+            ttl = registry.nextFrom(ttl.slot + 1)
+        }
+        return list
+    }
+
+    private fun refsOf(registry: TtlRegistry): Any =
+        TtlRegistry::class.java.getDeclaredField("refs").apply { isAccessible = true }.get(registry)
+}
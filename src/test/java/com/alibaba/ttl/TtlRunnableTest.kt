@@ -2,20 +2,28 @@ package com.alibaba.ttl
 
 import com.alibaba.*
 import com.alibaba.support.junit.conditional.ConditionalIgnoreRule
+import com.alibaba.support.junit.conditional.ConditionalIgnoreRule.ConditionalIgnore
+import com.alibaba.support.junit.conditional.IsAgentRun
 import com.alibaba.ttl.testmodel.DeepCopyFooTransmittableThreadLocal
 import com.alibaba.ttl.testmodel.FooPojo
 import com.alibaba.ttl.testmodel.FooTask
 import com.alibaba.ttl.testmodel.Task
+import com.alibaba.ttl.threadpool.TtlExecutors
 import org.hamcrest.CoreMatchers.containsString
 import org.hamcrest.CoreMatchers.instanceOf
 import org.junit.AfterClass
 import org.junit.Assert.*
 import org.junit.Rule
 import org.junit.Test
+import org.openjdk.jol.info.ClassLayout
+import org.openjdk.jol.info.GraphLayout
 import java.util.*
+import java.util.concurrent.Callable
 import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.ExecutionException
 import java.util.concurrent.Executors
+import java.util.concurrent.RunnableScheduledFuture
+import java.util.concurrent.ScheduledThreadPoolExecutor
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicInteger
 
@@ -294,6 +302,215 @@ class TtlRunnableTest {
         assertThat(taskList[3], instanceOf(TtlRunnable::class.java))
     }
 
+    @Test
+    fun test_gets_captureOnce() {
+        val backup = TransmittableThreadLocal.Transmitter.clear()
+        try {
+            val ttl = TransmittableThreadLocal<String>()
+            ttl.set("parent")
+
+            val taskList = TtlRunnable.gets(Arrays.asList<Runnable>(Task("1"), Task("2"), Task("3")))
+            val captured = capturedOf(taskList[0])
+            taskList.forEach { assertSame(captured, capturedOf(it)) }
+
+            // every task need its own copy when copy is overridden
+            var copyCount = 0
+            val copyTtl = object : TransmittableThreadLocal<String>() {
+                override fun copy(parentValue: String?): String? {
+                    copyCount++
+                    return parentValue
+                }
+            }
+            copyTtl.set("parent")
+            val copied = TtlRunnable.gets(Arrays.asList<Runnable>(Task("1"), Task("2"), Task("3")))
+            assertEquals(3, copyCount)
+            assertEquals(3, copied.map { capturedOf(it) }.toSet().size)
+        } finally {
+            TransmittableThreadLocal.Transmitter.restore(backup)
+        }
+    }
+
+    private fun capturedOf(task: Any?): Any? =
+            TtlRunnable::class.java.getDeclaredField("captured").apply { isAccessible = true }.get(task)
+
+    @Test
+    fun test_footprint_singleObject() {
+        val backup = TransmittableThreadLocal.Transmitter.clear()
+        try {
+            val ttl = TransmittableThreadLocal<String>()
+            ttl.set("parent")
+
+            // the wrapper is a single object holding the snapshot, no AtomicReference per task
+            val runnable = Runnable { }
+            val ttlRunnable = TtlRunnable.get(runnable)!!
+            assertFootprint(ttlRunnable, runnable)
+
+            val callable = Callable { "1" }
+            val ttlCallable = TtlCallable.get(callable)!!
+            assertFootprint(ttlCallable, callable)
+        } finally {
+            TransmittableThreadLocal.Transmitter.restore(backup)
+        }
+    }
+
+    private fun assertFootprint(wrapper: Any, task: Any) {
+        // nothing written after the wrapper creation, the snapshot captured is shared with the wrapper
+        val captured = TransmittableThreadLocal.Transmitter.capture()
+        val footprint = GraphLayout.parseInstance(wrapper).subtract(GraphLayout.parseInstance(task, captured))
+
+        assertEquals(footprint.toFootprint(), 1, footprint.totalCount())
+        assertEquals(ClassLayout.parseClass(wrapper.javaClass).instanceSize(), footprint.totalSize())
+    }
+
+    @Test
+    @ConditionalIgnore(condition = IsAgentRun::class)
+    fun test_captured_releasedAfterRun() {
+        val task = TtlRunnable.get(Task("1"))!!
+        assertThat(capturedOf(task), instanceOf(TtlSnapshot::class.java))
+
+        val released = TtlRunnable.get(Runnable { }, true)!!
+        released.run()
+        assertNull(capturedOf(released))
+    }
+
+    @Test
+    fun test_getForNewThread() {
+        assertNull(TtlRunnable.getForNewThread(null))
+
+        val runnable = Runnable {}
+        val task = TtlRunnable.getForNewThread(runnable)!!
+        assertSame(task, TtlRunnable.getForNewThread(task))
+        assertSame(task, TtlRunnable.get(task, false, true))
+        assertSame(task, TtlRunnable.gets(listOf(task), false, true)[0])
+
+        assertSame(runnable, TtlRunnable.unwrap(task))
+        assertEquals(listOf(runnable, runnable), TtlRunnable.unwraps(listOf(task, runnable)))
+    }
+
+    @Test
+    fun test_getForPeriodic() {
+        assertNull(TtlRunnable.getForPeriodic(null))
+        val ttlRunnable = TtlRunnable.get(Runnable { })!!
+        assertSame(ttlRunnable, TtlRunnable.getForPeriodic(ttlRunnable))
+
+        val runnable = Runnable {}
+        val task = TtlRunnable.getForPeriodic(runnable)!!
+        assertSame(task, TtlRunnable.get(task, false, true))
+        assertSame(task, TtlRunnable.gets(listOf(task), false, true)[0])
+        assertSame(runnable, TtlRunnable.unwrap(task))
+        assertEquals(listOf(runnable, runnable), TtlRunnable.unwraps(listOf(task, runnable)))
+
+        val backup = TransmittableThreadLocal.Transmitter.clear()
+        try {
+            periodic()
+        } finally {
+            TransmittableThreadLocal.Transmitter.restore(backup)
+        }
+    }
+
+    private fun periodic() {
+        val shared = TransmittableThreadLocal<String>()
+        val parentOnly = TransmittableThreadLocal<String>()
+        val workerOnly = TransmittableThreadLocal<String>()
+        val longLocal = TransmittableLongLocal()
+        shared.set("parent")
+        parentOnly.set("parent")
+        longLocal.set(42)
+
+        val values = mutableListOf<List<Any?>>()
+        var run = 0
+        val task = TtlRunnable.getForPeriodic(Runnable {
+            values.add(listOf(shared.get(), parentOnly.get(), workerOnly.get(), longLocal.get()))
+            // the write in task does not leak to the next run
+            if (run++ == 1) {
+                shared.set("changed")
+                workerOnly.set("changed")
+                longLocal.set(0)
+            }
+        })!!
+        assertThat(task, instanceOf(TtlEnhanced::class.java))
+        shared.set("parent-changed")
+
+        // the pooled thread holding its own values, run by the thread directly instead of executor(enhanced by agent)
+        val workerValues = mutableListOf<List<Any?>>()
+        val worker = Thread {
+            shared.set("worker")
+            parentOnly.remove()
+            longLocal.remove()
+            workerOnly.set("worker")
+            TransmittableThreadLocal.Transmitter.capture()
+
+            repeat(3) {
+                task.run()
+                workerValues.add(listOf(shared.get(), parentOnly.get(), workerOnly.get(), longLocal.isSet))
+            }
+        }
+        worker.start()
+        worker.join()
+        assertEquals(List(3) { listOf("worker", null, "worker", false) }, workerValues)
+
+        // run by the thread holding the other values
+        task.run()
+        assertEquals(listOf("parent-changed", "parent", null, 42L), listOf(shared.get(), parentOnly.get(), workerOnly.get(), longLocal.get()))
+
+        assertEquals(List(4) { listOf("parent", "parent", null, 42L) }, values)
+    }
+
+    @Test
+    fun test_getForPeriodic_unwrapByScheduledExecutor() {
+        val unwrapped = ArrayList<Runnable?>()
+        val idempotent = ArrayList<Runnable?>()
+        val scheduledExecutor = object : ScheduledThreadPoolExecutor(1) {
+            // the user code receiving the task wrapped by TTL
+            override fun <V> decorateTask(runnable: Runnable, task: RunnableScheduledFuture<V>): RunnableScheduledFuture<V> {
+                unwrapped.add(TtlRunnable.unwrap(runnable))
+                idempotent.add(TtlRunnable.get(runnable, false, true))
+                return task
+            }
+        }
+        val ttlExecutor = TtlExecutors.getTtlScheduledExecutorService(scheduledExecutor)!!
+
+        val task = Runnable {}
+        ttlExecutor.scheduleAtFixedRate(task, 10, 10, TimeUnit.SECONDS)
+        ttlExecutor.scheduleWithFixedDelay(task, 10, 10, TimeUnit.SECONDS)
+        scheduledExecutor.shutdownNow()
+
+        assertEquals(listOf(task, task), unwrapped)
+        assertEquals(2, idempotent.size)
+        idempotent.forEach { assertNotSame(task, it) }
+    }
+
+    @Test
+    @ConditionalIgnore(condition = IsAgentRun::class)
+    fun test_getForPeriodic_planReused() {
+        val backup = TransmittableThreadLocal.Transmitter.clear()
+        try {
+            val ttl = TransmittableThreadLocal<String>()
+            ttl.set("parent")
+            val task = TtlRunnable.getForPeriodic(Runnable { assertEquals("parent", ttl.get()) })!!
+            val planOf = { task.javaClass.getDeclaredField("plan").apply { isAccessible = true }.get(task) as TtlReplayPlan? }
+
+            // the thread holding no value, the baseline is the empty snapshot
+            ttl.remove()
+            task.run()
+            val plan = planOf()!!
+            assertSame(TtlSnapshot.EMPTY, plan.baseline)
+            task.run()
+            assertSame(plan, planOf())
+            assertNull(ttl.get())
+
+            // planned again for the other baseline
+            ttl.set("other")
+            TransmittableThreadLocal.Transmitter.capture()
+            task.run()
+            assertNotSame(plan, planOf())
+            assertEquals("other", ttl.get())
+            ttl.remove()
+        } finally {
+            TransmittableThreadLocal.Transmitter.restore(backup)
+        }
+    }
+
     @Test
     fun test_unwrap() {
         assertNull(TtlRunnable.unwrap(null))
@@ -1,12 +1,15 @@
 package com.alibaba.ttl.threadpool;
 
 import com.alibaba.*
+import com.alibaba.ttl.TransmittableThreadLocal
 import com.alibaba.ttl.TtlRunnable
 import com.alibaba.ttl.testmodel.Task
+import org.junit.Assert.assertEquals
 import org.junit.Assert.assertFalse
 import org.junit.Assert.assertTrue
 import org.junit.Test;
 import java.util.concurrent.*
+import java.util.concurrent.atomic.AtomicInteger
 
 private const val POOL_SIZE = 3
 
@@ -60,4 +63,41 @@ class ExecutorClassesTest {
         // child do not effect parent
         assertParentTtlValues(copyTtlValues(ttlInstances))
     }
+
+    @Test
+    fun checkCaptureOnce() {
+        val copyCount = AtomicInteger()
+        val ttl = object : TransmittableThreadLocal<String>() {
+            override fun copy(parentValue: String?): String? {
+                copyCount.incrementAndGet()
+                return parentValue
+            }
+        }
+        ttl.set("parent")
+
+        // execute/submit of ScheduledThreadPoolExecutor call schedule, the task is still captured once
+        val pool: ExecutorService = if (noTtlAgentRun()) TtlExecutors.getTtlExecutorService(executorService)!! else executorService
+        val scheduledPool: ScheduledExecutorService =
+                if (noTtlAgentRun()) TtlExecutors.getTtlScheduledExecutorService(scheduledExecutorService)!! else scheduledExecutorService
+        val submissions = listOf<(Runnable) -> Future<*>>(
+                { task -> FutureTask(task, null).also { pool.execute(it) } },
+                { task -> pool.submit(task) },
+                { task -> pool.submit(Callable { task.run() }) },
+                { task -> FutureTask(task, null).also { scheduledPool.execute(it) } },
+                { task -> scheduledPool.submit(task) },
+                { task -> scheduledPool.submit(Callable { task.run() }) },
+                { task -> scheduledPool.schedule(task, 1, TimeUnit.MILLISECONDS) },
+                { task -> scheduledPool.schedule(Callable { task.run() }, 1, TimeUnit.MILLISECONDS) }
+        )
+
+        submissions.forEachIndexed { index, submit ->
+            copyCount.set(0)
+            var value: String? = null
+            submit(Runnable { value = ttl.get() }).get(1, TimeUnit.SECONDS)
+
+            assertEquals("submission $index", "parent", value)
+            assertEquals("submission $index", 1, copyCount.get())
+        }
+        ttl.remove()
+    }
 }
@@ -0,0 +1,112 @@
+package com.alibaba.ttl.threadpool
+
+import com.alibaba.support.junit.conditional.BelowJava21
+import com.alibaba.support.junit.conditional.ConditionalIgnoreRule
+import com.alibaba.support.junit.conditional.ConditionalIgnoreRule.ConditionalIgnore
+import com.alibaba.support.junit.conditional.IsAgentRun
+import com.alibaba.ttl.TransmittableThreadLocal
+import com.alibaba.ttl.TransmittableThreadLocal.Transmitter
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import java.util.concurrent.AbstractExecutorService
+import java.util.concurrent.Callable
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ */
+class ThreadPerTaskExecutorServiceTtlWrapperTest {
+    @Rule
+    @JvmField
+    val rule = ConditionalIgnoreRule()
+
+    @Test
+    @ConditionalIgnore(condition = IsAgentRun::class)
+    fun test_threadPerTask() {
+        val backup = Transmitter.clear()
+        try {
+            threadPerTask()
+        } finally {
+            Transmitter.restore(backup)
+        }
+    }
+
+    private fun threadPerTask() {
+        val executorService = TtlExecutors.getTtlThreadPerTaskExecutorService(ThreadPerTaskExecutorService())!!
+        assertTrue(executorService is ThreadPerTaskExecutorServiceTtlWrapper)
+
+        val before = AtomicInteger()
+        val after = AtomicInteger()
+        val ttl = object : TransmittableThreadLocal<String>() {
+            override fun beforeExecute() {
+                before.incrementAndGet()
+            }
+
+            override fun afterExecute() {
+                after.incrementAndGet()
+            }
+        }
+        ttl.set("parent")
+
+        val captured = Transmitter.capture()
+        assertEquals("parent", executorService.submit(Callable { ttl.get() }).get())
+        // installed as the context of new thread directly, the capture in task shares the captured
+        assertSame(captured, executorService.submit(Callable { Transmitter.capture() }).get())
+
+        var value: String? = null
+        executorService.submit { value = ttl.get() }.get()
+        assertEquals("parent", value)
+        assertEquals(listOf("parent", "parent"), executorService.invokeAll(listOf(Callable { ttl.get() }, Callable { ttl.get() })).map { it.get() })
+
+        assertEquals(5, before.get())
+        assertEquals(5, after.get())
+        ttl.remove()
+    }
+
+    @Test
+    fun test_virtualThread() {
+        val isBelowJava21 = BelowJava21().isSatisfied
+        try {
+            val executorService = TtlExecutors.getTtlVirtualThreadPerTaskExecutor()
+            assertFalse(isBelowJava21)
+
+            val ttl = TransmittableThreadLocal<String>()
+            ttl.set("parent")
+            val itl = InheritableThreadLocal<String>()
+            itl.set("parent")
+
+            assertEquals(listOf("parent", null, true), executorService.submit(Callable {
+                listOf(ttl.get(), itl.get(), Thread::class.java.getMethod("isVirtual").invoke(Thread.currentThread()))
+            }).get())
+
+            executorService.shutdown()
+            ttl.remove()
+            itl.remove()
+        } catch (e: UnsupportedOperationException) {
+            assertTrue(isBelowJava21)
+        }
+    }
+
+    /**
+     * run every task by a new thread, not inheriting.
+     */
+    private class ThreadPerTaskExecutorService : AbstractExecutorService() {
+        private val threadFactory = TtlExecutors.getDefaultDisableInheritableThreadFactory()!!
+
+        override fun execute(command: Runnable) {
+            threadFactory.newThread(command).start()
+        }
+
+        override fun shutdown() {}
+
+        override fun shutdownNow(): List<Runnable> = emptyList()
+
+        override fun isShutdown(): Boolean = false
+
+        override fun isTerminated(): Boolean = false
+
+        override fun awaitTermination(timeout: Long, unit: TimeUnit): Boolean = true
+    }
+}
@@ -3,6 +3,7 @@ package com.alibaba.ttl.threadpool.agent
 import com.alibaba.support.junit.conditional.ConditionalIgnoreRule
 import com.alibaba.support.junit.conditional.ConditionalIgnoreRule.ConditionalIgnore
 import com.alibaba.support.junit.conditional.IsAgentRun
+import com.alibaba.ttl.threadpool.agent.TtlAgent.splitBarString
 import com.alibaba.ttl.threadpool.agent.TtlAgent.splitCommaColonStringToKV
 import org.junit.Assert.assertEquals
 import org.junit.Rule
@@ -37,4 +38,14 @@ class TtlAgentTest {
         assertEquals(mapOf("k1" to "v1", "ttl.agent.logger" to "STDOUT", "k3" to ""), splitCommaColonStringToKV(
                 "     k1     :v1  , ttl.agent.logger    :STDOUT   ,k3"))
     }
+
+    @Test
+    @ConditionalIgnore(condition = IsAgentRun::class)
+    fun test_splitBarString() {
+        assertEquals(emptyList<String>(), splitBarString(null))
+        assertEquals(emptyList<String>(), splitBarString(" | "))
+
+        assertEquals(listOf("com.foo.Executor"), splitBarString("com.foo.Executor"))
+        assertEquals(listOf("com.foo.Executor", "com.bar.*"), splitBarString(" com.foo.Executor |com.bar.* |"))
+    }
 }
@@ -0,0 +1,111 @@
+package com.alibaba.ttl.threadpool.agent
+
+import com.alibaba.support.junit.conditional.ConditionalIgnoreRule
+import com.alibaba.support.junit.conditional.ConditionalIgnoreRule.ConditionalIgnore
+import com.alibaba.support.junit.conditional.IsAgentRun
+import com.alibaba.ttl.threadpool.agent.internal.logging.Logger
+import com.alibaba.ttl.threadpool.agent.internal.transformlet.JavassistTransformlet
+import org.junit.Assert.*
+import org.junit.BeforeClass
+import org.junit.Rule
+import org.junit.Test
+
+/**
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ */
+class TtlTransformerTest {
+    @Rule
+    @JvmField
+    val rule = ConditionalIgnoreRule()
+
+    @Test
+    @ConditionalIgnore(condition = IsAgentRun::class)
+    fun test_targetIndex() {
+        val executorTransformlet = RecordTransformlet(setOf("com.foo.Executor", "com.foo.Pool"))
+        val poolTransformlet = RecordTransformlet(setOf("com.foo.Pool"))
+        val transformer = TtlTransformer(listOf(executorTransformlet, poolTransformlet))
+
+        assertEquals(0, transformer.transform(javaClass.classLoader, "com/foo/Bar", null, null, BYTES).size)
+        assertEquals(0, transformer.transform(javaClass.classLoader, null, null, null, BYTES).size)
+        assertEquals(emptyList<String>(), executorTransformlet.classNames)
+        assertEquals(emptyList<String>(), poolTransformlet.classNames)
+
+        assertSame(BYTES, transformer.transform(javaClass.classLoader, "com/foo/Executor", null, null, BYTES))
+        assertEquals(listOf("com.foo.Executor"), executorTransformlet.classNames)
+
+        // the first transformlet transforms the class
+        assertSame(BYTES, transformer.transform(javaClass.classLoader, "com/foo/Pool", null, null, BYTES))
+        assertEquals(listOf("com.foo.Executor", "com.foo.Pool"), executorTransformlet.classNames)
+        assertEquals(emptyList<String>(), poolTransformlet.classNames)
+
+        assertEquals(3, transformer.examinedClassCount)
+        assertEquals(2, transformer.transformedClassCount)
+    }
+
+    @Test
+    @ConditionalIgnore(condition = IsAgentRun::class)
+    fun test_allClassTransformlet() {
+        val executorTransformlet = RecordTransformlet(setOf("com.foo.Executor"), null)
+        val allClassTransformlet = RecordTransformlet(null)
+        val transformer = TtlTransformer(listOf(executorTransformlet, allClassTransformlet))
+
+        assertSame(BYTES, transformer.transform(javaClass.classLoader, "com/foo/Bar", null, null, BYTES))
+        assertSame(BYTES, transformer.transform(javaClass.classLoader, "com/foo/Executor", null, null, BYTES))
+        assertEquals(listOf("com.foo.Executor"), executorTransformlet.classNames)
+        assertEquals(listOf("com.foo.Bar", "com.foo.Executor"), allClassTransformlet.classNames)
+
+        assertEquals(2, transformer.examinedClassCount)
+        assertEquals(2, transformer.transformedClassCount)
+    }
+
+    @Test
+    @ConditionalIgnore(condition = IsAgentRun::class)
+    fun test_prefix() {
+        val executorTransformlet = RecordTransformlet(setOf("com.foo.Executor", "com.foo.executor.*"))
+        val poolTransformlet = RecordTransformlet(setOf("com.foo.executor.Pool"), null)
+        val transformer = TtlTransformer(listOf(executorTransformlet, poolTransformlet))
+
+        // the class not matched by name or prefix is not passed to the transformlet
+        assertEquals(0, transformer.transform(javaClass.classLoader, "com/foo/Bar", null, null, BYTES).size)
+        assertEquals(0, transformer.transform(javaClass.classLoader, "com/foo/ExecutorX", null, null, BYTES).size)
+        assertEquals(emptyList<String>(), executorTransformlet.classNames)
+
+        assertSame(BYTES, transformer.transform(javaClass.classLoader, "com/foo/executor/Bar", null, null, BYTES))
+        // the transformlet of the exact name first, then of the prefix
+        assertSame(BYTES, transformer.transform(javaClass.classLoader, "com/foo/executor/Pool", null, null, BYTES))
+        assertEquals(listOf("com.foo.executor.Bar", "com.foo.executor.Pool"), executorTransformlet.classNames)
+        assertEquals(listOf("com.foo.executor.Pool"), poolTransformlet.classNames)
+
+        assertEquals(4, transformer.examinedClassCount)
+        assertEquals(2, transformer.transformedClassCount)
+    }
+
+    private class RecordTransformlet(
+        private val targetClassNames: Set<String>?,
+        private val result: ByteArray? = BYTES
+    ) : JavassistTransformlet {
+        val classNames = mutableListOf<String>()
+
+        override fun getTargetClassNames(): Set<String>? = targetClassNames
+
+        override fun doTransform(className: String, classFileBuffer: ByteArray, loader: ClassLoader?): ByteArray? {
+            classNames.add(className)
+            return result
+        }
+    }
+
+    companion object {
+        private val BYTES = ByteArray(1)
+
+        @BeforeClass
+        @JvmStatic
+        @Suppress("unused")
+        fun beforeClass() {
+            try {
+                Logger.setLoggerImplType(Logger.STDERR)
+            } catch (e: IllegalStateException) {
+                // already set when run with TTL agent
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+@file:JvmName("UserExecutorAgentCheck")
+
+package com.alibaba.ttl.threadpool.agent.check.executor
+
+import com.alibaba.*
+import com.alibaba.ttl.TransmittableThreadLocal
+import com.alibaba.ttl.testmodel.Task
+import java.util.concurrent.*
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Run with {@code ttl.agent.executor.class.names} configured by the prefix of this package.
+ *
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ * @see com.alibaba.ttl.threadpool.agent.internal.transformlet.impl.TtlExecutorTransformlet
+ */
+fun main(args: Array<String>) {
+    // the worker thread is created before the parent values, nothing inherited
+    val executor = UserQueueExecutor()
+
+    printHead("UserExecutorAgentCheck")
+
+    val ttlInstances = createParentTtlInstances(ConcurrentHashMap())
+
+    val tag = "1"
+    val task = Task(tag, ttlInstances)
+
+    val latch = CountDownLatch(1)
+    executor.execute {
+        task.run()
+        latch.countDown()
+    }
+
+    // create after new Task, won't see parent value in in task!
+    createParentTtlInstancesAfterCreateChild(ttlInstances)
+
+    if (!latch.await(1, TimeUnit.SECONDS)) throw IllegalStateException("task not run!")
+
+    // child Inheritable
+    assertChildTtlValues(tag, task.copied)
+    // child do not effect parent
+    assertParentTtlValues(copyTtlValues(ttlInstances))
+
+    // submit calls execute of the same executor, capture once
+    val copyCount = AtomicInteger()
+    val ttl = object : TransmittableThreadLocal<String>() {
+        override fun copy(parentValue: String?): String? {
+            copyCount.incrementAndGet()
+            return parentValue
+        }
+    }
+    ttl.set("submit")
+    val future = executor.submit(Callable { ttl.get() })
+    if (copyCount.get() != 1) throw IllegalStateException("capture ${copyCount.get()} times for submit!")
+    ttl.remove()
+    if (future.get(1, TimeUnit.SECONDS) != "submit") throw IllegalStateException("submitted task not transmitted!")
+
+    // the method not task submission is not decorated
+    val runnable = Runnable { }
+    if (executor.accept(runnable) !== runnable) throw IllegalStateException("non-submission method is decorated!")
+
+    printHead("UserExecutorAgentCheck OK!")
+}
+
+/**
+ * user-defined executor, run the tasks in its worker thread.
+ */
+class UserQueueExecutor : Executor {
+    private val queue = LinkedBlockingQueue<Runnable>()
+
+    init {
+        Thread { while (true) queue.take().run() }.apply { isDaemon = true }.start()
+    }
+
+    override fun execute(command: Runnable) {
+        queue.put(accept(command))
+    }
+
+    fun <T> submit(task: Callable<T>): Future<T> = FutureTask(task).also { execute(it) }
+
+    /**
+     * not task submission, take and return the task as is.
+     */
+    fun accept(task: Runnable): Runnable = task
+}
@@ -0,0 +1,70 @@
+package com.alibaba.ttl.threadpool.agent.internal.transformlet.impl
+
+import com.alibaba.support.junit.conditional.ConditionalIgnoreRule
+import com.alibaba.support.junit.conditional.ConditionalIgnoreRule.ConditionalIgnore
+import com.alibaba.support.junit.conditional.IsAgentRun
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import java.util.*
+import java.util.concurrent.ScheduledThreadPoolExecutor
+
+/**
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ */
+class ClassFileScannerTest {
+    @Rule
+    @JvmField
+    val rule = ConditionalIgnoreRule()
+
+    @Test
+    @ConditionalIgnore(condition = IsAgentRun::class)
+    fun test_timerTask() {
+        val scanner = ClassFileScanner(classFileOf(TimerTask::class.java))
+        assertFalse(scanner.isInterface)
+        assertTrue(scanner.isSuperClass("java/lang/Object"))
+        assertTrue(scanner.declaresMethod("run", "()V"))
+        assertTrue(scanner.declaresMethod("cancel", "()Z"))
+        assertFalse(scanner.declaresMethod("run", "()Z"))
+
+        val subclassScanner = ClassFileScanner(classFileOf(Task::class.java))
+        assertTrue(subclassScanner.isSuperClass("java/util/TimerTask"))
+        assertFalse(subclassScanner.isSuperClass("java/lang/Object"))
+        assertTrue(subclassScanner.declaresMethod("run", "()V"))
+        assertFalse(subclassScanner.declaresMethod("cancel", "()Z"))
+    }
+
+    @Test
+    @ConditionalIgnore(condition = IsAgentRun::class)
+    fun test_constantPool() {
+        // the constant pool of executor contains the long/double entries, the fields and methods have attributes
+        val scanner = ClassFileScanner(classFileOf(ScheduledThreadPoolExecutor::class.java))
+        assertFalse(scanner.isInterface)
+        assertTrue(scanner.isSuperClass("java/util/concurrent/ThreadPoolExecutor"))
+        assertTrue(scanner.declaresMethod("execute", "(Ljava/lang/Runnable;)V"))
+        assertTrue(scanner.declaresMethod("<init>", "(I)V"))
+        assertFalse(scanner.declaresMethod("execute", "(Ljava/util/concurrent/Callable;)V"))
+    }
+
+    @Test
+    @ConditionalIgnore(condition = IsAgentRun::class)
+    fun test_interface() {
+        val scanner = ClassFileScanner(classFileOf(Runnable::class.java))
+        assertTrue(scanner.isInterface)
+        assertTrue(scanner.declaresMethod("run", "()V"))
+
+        assertTrue(ClassFileScanner(classFileOf(FunctionalInterface::class.java)).isInterface)
+    }
+
+    private class Task : TimerTask() {
+        @Volatile
+        private var count = 0L
+
+        override fun run() {
+            count++
+        }
+    }
+
+    private fun classFileOf(clazz: Class<*>): ByteArray =
+        ClassLoader.getSystemResourceAsStream(clazz.name.replace('.', '/') + ".class")!!.use { it.readBytes() }
+}
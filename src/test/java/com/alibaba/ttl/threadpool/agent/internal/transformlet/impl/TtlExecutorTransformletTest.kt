@@ -0,0 +1,185 @@
+package com.alibaba.ttl.threadpool.agent.internal.transformlet.impl
+
+import com.alibaba.ttl.TransmittableThreadLocal
+import com.alibaba.ttl.TransmittableThreadLocal.Transmitter
+import com.alibaba.ttl.TtlEnhanced
+import com.alibaba.ttl.TtlRunnable
+import com.alibaba.ttl.threadpool.agent.internal.logging.Logger
+import org.junit.Assert.*
+import org.junit.BeforeClass
+import org.junit.Test
+import java.util.concurrent.Callable
+import java.util.concurrent.Executor
+import java.util.concurrent.Future
+import java.util.concurrent.FutureTask
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.Supplier
+
+/**
+ * @author wuwen5 (wuwen.55 at aliyun dot com)
+ */
+class TtlExecutorTransformletTest {
+    @Test
+    fun test_targetClassNames() {
+        val transformlet = TtlExecutorTransformlet(false, listOf("com.foo.MyExecutor"))
+        assertTrue(transformlet.targetClassNames!!.contains("java.util.concurrent.ThreadPoolExecutor"))
+        assertTrue(transformlet.targetClassNames!!.contains("com.foo.MyExecutor"))
+
+        // prefix, indexed by the transformer
+        val targetClassNames = TtlExecutorTransformlet(false, listOf("com.foo.MyExecutor", "com.foo.executor.*")).targetClassNames!!
+        assertTrue(targetClassNames.contains("com.foo.MyExecutor"))
+        assertTrue(targetClassNames.contains("com.foo.executor.*"))
+    }
+
+    @Test
+    fun test_userExecutor() {
+        val backup = Transmitter.clear()
+        try {
+            userExecutor(TtlExecutorTransformlet(false, listOf(USER_EXECUTOR_CLASS_NAME)))
+            userExecutor(TtlExecutorTransformlet(false, listOf(javaClass.`package`.name + ".*")))
+        } finally {
+            Transmitter.restore(backup)
+        }
+    }
+
+    private fun userExecutor(transformlet: TtlExecutorTransformlet) {
+        val bytes = transformlet.doTransform(USER_EXECUTOR_CLASS_NAME, classFileOf(USER_EXECUTOR_CLASS_NAME), javaClass.classLoader)!!
+
+        val executor = TransformedClassLoader(USER_EXECUTOR_CLASS_NAME, bytes).loadClass(USER_EXECUTOR_CLASS_NAME).newInstance()
+        @Suppress("UNCHECKED_CAST")
+        val tasks = executor as Supplier<Runnable>
+
+        val ttl = TransmittableThreadLocal<String>()
+        ttl.set("parent")
+        var value: String? = null
+        (executor as Executor).execute { value = ttl.get() }
+        ttl.set("changed")
+
+        val task = tasks.get()
+        assertTrue(task is TtlRunnable)
+        task.run()
+        assertEquals("parent", value)
+        assertEquals("changed", ttl.get())
+        ttl.remove()
+    }
+
+    @Test
+    fun test_userExecutor_captureOnce() {
+        val backup = Transmitter.clear()
+        try {
+            userExecutorCaptureOnce()
+        } finally {
+            Transmitter.restore(backup)
+        }
+    }
+
+    private fun userExecutorCaptureOnce() {
+        val className = UserSubmitExecutor::class.java.name
+        val bytes = TtlExecutorTransformlet(false, listOf(className)).doTransform(className, classFileOf(className), javaClass.classLoader)!!
+        val executor = TransformedClassLoader(className, bytes).loadClass(className).newInstance()
+        @Suppress("UNCHECKED_CAST")
+        val tasks = executor as Supplier<Runnable>
+
+        val copyCount = AtomicInteger()
+        val ttl = object : TransmittableThreadLocal<String>() {
+            override fun copy(parentValue: String?): String? {
+                copyCount.incrementAndGet()
+                return parentValue
+            }
+        }
+        ttl.set("parent")
+
+        // submit calls execute of the same executor with the FutureTask of the decorated task, capture once
+        val future = executor.javaClass.getMethod("submit", Callable::class.java).invoke(executor, Callable { ttl.get() }) as Future<*>
+        assertEquals(1, copyCount.get())
+        val submitted = tasks.get()
+        assertFalse(submitted is TtlEnhanced)
+
+        // execute called directly is decorated
+        var value: String? = null
+        (executor as Executor).execute { value = ttl.get() }
+        assertEquals(2, copyCount.get())
+        val executed = tasks.get()
+        assertTrue(executed is TtlRunnable)
+
+        ttl.set("changed")
+        submitted.run()
+        executed.run()
+        assertEquals("parent", future.get())
+        assertEquals("parent", value)
+        assertEquals("changed", ttl.get())
+        assertEquals(2, copyCount.get())
+        ttl.remove()
+    }
+
+    @Test
+    fun test_userExecutor_notExecutor() {
+        val transformlet = TtlExecutorTransformlet(false, listOf(javaClass.`package`.name + ".*"))
+
+        // not executor, or interface
+        assertNull(transformlet.doTransform(javaClass.name, classFileOf(javaClass.name), javaClass.classLoader))
+        val interfaceName = UserExecutorInterface::class.java.name
+        assertNull(transformlet.doTransform(interfaceName, classFileOf(interfaceName), javaClass.classLoader))
+        // not configured
+        assertNull(TtlExecutorTransformlet(false).doTransform(USER_EXECUTOR_CLASS_NAME, classFileOf(USER_EXECUTOR_CLASS_NAME), javaClass.classLoader))
+    }
+
+    private fun classFileOf(className: String): ByteArray =
+        javaClass.classLoader.getResourceAsStream(className.replace('.', '/') + ".class")!!.use { it.readBytes() }
+
+    /**
+     * define the transformed class, load the others by the parent.
+     */
+    private class TransformedClassLoader(private val className: String, private val bytes: ByteArray) :
+        ClassLoader(TtlExecutorTransformletTest::class.java.classLoader) {
+        override fun loadClass(name: String, resolve: Boolean): Class<*> {
+            if (name != className) return super.loadClass(name, resolve)
+            return findLoadedClass(name) ?: defineClass(name, bytes, 0, bytes.size)
+        }
+    }
+
+    companion object {
+        private val USER_EXECUTOR_CLASS_NAME = UserQueueExecutor::class.java.name
+
+        @BeforeClass
+        @JvmStatic
+        @Suppress("unused")
+        fun beforeClass() {
+            try {
+                Logger.setLoggerImplType(Logger.STDERR)
+            } catch (e: IllegalStateException) {
+                // already set when run with TTL agent
+            }
+        }
+    }
+}
+
+/**
+ * user-defined executor, keep the task to run later.
+ */
+class UserQueueExecutor : Executor, Supplier<Runnable> {
+    private var task: Runnable? = null
+
+    override fun execute(command: Runnable) {
+        task = command
+    }
+
+    override fun get(): Runnable = task!!
+}
+
+/**
+ * user-defined executor, whose submit calls execute with the FutureTask of the task.
+ */
+class UserSubmitExecutor : Executor, Supplier<Runnable> {
+    private var task: Runnable? = null
+
+    override fun execute(command: Runnable) {
+        task = command
+    }
+
+    fun <T> submit(task: Callable<T>): Future<T> = FutureTask(task).also { execute(it) }
+
+    override fun get(): Runnable = task!!
+}
+
+interface UserExecutorInterface : Executor